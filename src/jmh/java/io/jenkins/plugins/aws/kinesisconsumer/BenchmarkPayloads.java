@@ -0,0 +1,40 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+/**
+ * Synthetic GitHub-like push events, padded with commits up to a given size
+ */
+public final class BenchmarkPayloads {
+  private BenchmarkPayloads() {}
+
+  /**
+   * Build a push event
+   *
+   * @param repository the repository name, found at <i>$.repository.name</i>
+   * @param sizeBytes approximate size of the event
+   * @return the JSON event
+   */
+  public static String push(String repository, int sizeBytes) {
+    StringBuilder json =
+        new StringBuilder(sizeBytes + 512)
+            .append("{\"ref\":\"refs/heads/main\",")
+            .append("\"before\":\"0000000000000000000000000000000000000000\",")
+            .append("\"after\":\"1111111111111111111111111111111111111111\",")
+            .append("\"repository\":{\"id\":42,\"name\":\"")
+            .append(repository)
+            .append("\",\"full_name\":\"jenkinsci/")
+            .append(repository)
+            .append("\",\"private\":false},\"commits\":[");
+    for (int i = 0; json.length() < sizeBytes; i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append("{\"id\":\"")
+          .append(i)
+          .append("\",\"message\":\"Change number ")
+          .append(i)
+          .append("\",\"author\":{\"name\":\"Jenkins\",\"email\":\"jenkins@example.com\"},")
+          .append("\"added\":[\"src/main/java/Foo.java\"],\"modified\":[\"README.md\"]}");
+    }
+    return json.append("]}").toString();
+  }
+}
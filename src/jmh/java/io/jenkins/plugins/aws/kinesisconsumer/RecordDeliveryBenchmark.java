@@ -0,0 +1,128 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import io.jenkins.plugins.aws.kinesisconsumer.extensions.AWSKinesisRecord;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import software.amazon.kinesis.lifecycle.events.ProcessRecordsInput;
+import software.amazon.kinesis.retrieval.KinesisClientRecord;
+
+/**
+ * Throughput, in records per second, of the delivery of a batch of records received by {@link
+ * KinesisRecordProcessor}: wrapping, filtering, deduplication and dispatch across partition keys,
+ * the listeners being replaced by a blackhole.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordDeliveryBenchmark {
+  private static final int BATCH_SIZE = 100;
+  private static final String STREAM_NAME = "benchmark-stream";
+
+  @Param({"1024", "20480", "61440"})
+  int payloadBytes;
+
+  @Param({"1", "4"})
+  int partitionKeyThreads;
+
+  private ProcessRecordsInput processRecordsInput;
+  private Predicate<AWSKinesisRecord> preFilter;
+  private PartitionKeyExecutor keyExecutor;
+  private int sequenceNumber;
+
+  @Setup
+  public void setUp() {
+    List<KinesisClientRecord> records = new ArrayList<>(BATCH_SIZE);
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      String payload = BenchmarkPayloads.push("repo-" + i % 16, payloadBytes);
+      byte[] data = payload.getBytes(StandardCharsets.UTF_8);
+      records.add(
+          KinesisClientRecord.builder()
+              .sequenceNumber(String.valueOf(i))
+              .partitionKey("repo-" + i % 16)
+              .data(ByteBuffer.wrap(data).asReadOnlyBuffer())
+              .build());
+    }
+    processRecordsInput =
+        ProcessRecordsInput.builder().records(records).millisBehindLatest(0L).build();
+    KinesisStreamItem kinesisStreamItem =
+        new KinesisStreamItem(STREAM_NAME, "TRIM_HORIZON", "$.repository.name", true);
+    kinesisStreamItem.setFilterPayloadPrefix("{\"ref\":");
+    preFilter = new RecordPreFilter(kinesisStreamItem);
+    keyExecutor =
+        partitionKeyThreads == 1
+            ? PartitionKeyExecutor.sequential()
+            : new PartitionKeyExecutor(STREAM_NAME, partitionKeyThreads);
+  }
+
+  @TearDown
+  public void tearDown() {
+    keyExecutor.shutdown();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void deliver(Blackhole blackhole) {
+    KinesisRecordProcessor.deliver(
+        new RecordBatch("shardId-000000000000", processRecordsInput.records()),
+        preFilter,
+        keyExecutor,
+        blackhole::consume);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void deliverDecoded(Blackhole blackhole) {
+    KinesisRecordProcessor.deliver(
+        new RecordBatch("shardId-000000000000", processRecordsInput.records()),
+        preFilter,
+        keyExecutor,
+        records -> records.forEach(r -> blackhole.consume(r.getJsonPayload())));
+  }
+
+  /** Deduplication state, sized for all the sequence numbers of a measurement */
+  @State(Scope.Thread)
+  public static class Dedup {
+    RecordDeduplicator deduplicator;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+      deduplicator = new RecordDeduplicator(STREAM_NAME, null, 1_000_000, 600);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void deliverDeduplicated(Dedup dedup, Blackhole blackhole) {
+    List<KinesisClientRecord> records = new ArrayList<>(BATCH_SIZE);
+    for (KinesisClientRecord record : processRecordsInput.records()) {
+      records.add(record.toBuilder().sequenceNumber(String.valueOf(sequenceNumber++)).build());
+    }
+    KinesisRecordProcessor.deliver(
+        new RecordBatch("shardId-000000000000", records),
+        preFilter.and(dedup.deduplicator),
+        keyExecutor,
+        blackhole::consume);
+  }
+}
@@ -0,0 +1,117 @@
+package io.jenkins.plugins.aws.kinesisconsumer.extensions;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import hudson.ExtensionList;
+import io.jenkins.plugins.aws.kinesisconsumer.BenchmarkPayloads;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import jenkins.model.Jenkins;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput, in records per second, of the delivery of a batch of records to the registered
+ * listeners through {@link AWSKinesisStreamListener#fireOnReceiveBatch(String, String, List)}:
+ * listener lookup, switch to the system authentication and per-listener metrics. Jenkins and its
+ * extension list are mocked, so that no Jenkins instance is needed, and the listeners only count
+ * the records received.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListenerDispatchBenchmark {
+  private static final int BATCH_SIZE = 100;
+  private static final String STREAM_NAME = "benchmark-stream";
+  private static final String SHARD_ID = "shardId-000000000000";
+
+  @Param({"1", "4"})
+  int listenerCount;
+
+  private CountingListener[] listeners;
+  private List<AWSKinesisRecord> records;
+  private String[] payloads;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setUp() throws ReflectiveOperationException {
+    listeners = new CountingListener[listenerCount];
+    for (int i = 0; i < listenerCount; i++) {
+      listeners[i] = new CountingListener();
+    }
+    ExtensionList<AWSKinesisStreamListener> extensions = mock(ExtensionList.class);
+    when(extensions.toArray()).thenReturn(listeners);
+    Jenkins jenkins = mock(Jenkins.class);
+    when(jenkins.getExtensionList(AWSKinesisStreamListener.class)).thenReturn(extensions);
+    setJenkinsInstance(jenkins);
+
+    records = new ArrayList<>(BATCH_SIZE);
+    payloads = new String[BATCH_SIZE];
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      payloads[i] = BenchmarkPayloads.push("repo-" + i % 16, 1024);
+      records.add(
+          new AWSKinesisRecord(
+              SHARD_ID, String.valueOf(i), 0, "repo-" + i % 16, null, payloads[i]));
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws ReflectiveOperationException {
+    setJenkinsInstance(null);
+  }
+
+  /** Replace the running Jenkins instance returned by {@link Jenkins#getInstanceOrNull()} */
+  private static void setJenkinsInstance(Jenkins jenkins) throws ReflectiveOperationException {
+    Field instance = Jenkins.class.getDeclaredField("theInstance");
+    instance.setAccessible(true);
+    instance.set(null, jenkins);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void fireOnReceiveBatch(Blackhole blackhole) {
+    AWSKinesisStreamListener.fireOnReceiveBatch(STREAM_NAME, SHARD_ID, records);
+    blackhole.consume(listeners[0].received);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void fireOnReceivePerRecord(Blackhole blackhole) {
+    for (String payload : payloads) {
+      AWSKinesisStreamListener.fireOnReceive(STREAM_NAME, payload);
+    }
+    blackhole.consume(listeners[0].received);
+  }
+
+  private static final class CountingListener extends AWSKinesisStreamListener {
+    private long received;
+
+    @Override
+    public void onReceive(String streamName, String jsonPayload) {
+      received++;
+    }
+
+    @Override
+    public void onReceiveBatch(String streamName, String shardId, List<AWSKinesisRecord> records) {
+      received += records.size();
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package io.jenkins.plugins.aws.kinesisconsumer.listeners;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.ParseContext;
+import com.jayway.jsonpath.spi.json.JsonSmartJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JsonSmartMappingProvider;
+import io.jenkins.plugins.aws.kinesisconsumer.BenchmarkPayloads;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput, in records per second, of the extraction of the project name from the payload of a
+ * record: full parse and JSON Path evaluation versus the {@link StreamingJsonFieldExtractor}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectExtractionBenchmark {
+  private static final String PROJECT_NAME_JSON_PATH = "$.repository.name";
+  private static final ParseContext PARSE_CONTEXT =
+      JsonPath.using(
+          Configuration.builder()
+              .jsonProvider(new JsonSmartJsonProvider())
+              .mappingProvider(new JsonSmartMappingProvider())
+              .build());
+
+  @Param({"1024", "20480", "61440"})
+  int payloadBytes;
+
+  private ByteBuffer data;
+  private JsonPath jsonPath;
+  private StreamingJsonFieldExtractor extractor;
+
+  @Setup
+  public void setUp() {
+    byte[] payload =
+        BenchmarkPayloads.push("jenkins", payloadBytes).getBytes(StandardCharsets.UTF_8);
+    data = ByteBuffer.wrap(payload).asReadOnlyBuffer();
+    jsonPath = JsonPath.compile(PROJECT_NAME_JSON_PATH);
+    extractor = StreamingJsonFieldExtractor.compile(PROJECT_NAME_JSON_PATH);
+  }
+
+  @Benchmark
+  public Object decodeAndJsonPath() {
+    ByteBuffer buffer = data.duplicate();
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return PARSE_CONTEXT.parse(new String(bytes, StandardCharsets.UTF_8)).read(jsonPath);
+  }
+
+  @Benchmark
+  public String streaming() throws IOException {
+    return extractor.extract(data.duplicate());
+  }
+}
@@ -0,0 +1,75 @@
+package io.jenkins.plugins.aws.kinesisconsumer.listeners;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import jenkins.plugins.git.GitSCMSource;
+import jenkins.scm.api.SCMSource;
+import org.jenkinsci.plugins.workflow.multibranch.WorkflowMultiBranchProject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput, in events per second, of the resolution of the multibranch jobs matching the project
+ * of an event through the {@link SCMSourceIndex}, for an increasing number of jobs. The jobs are
+ * mocked, so that no Jenkins instance is needed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SCMMatchingBenchmark {
+  @Param({"100", "1000", "10000"})
+  int jobCount;
+
+  private SCMSourceIndex index;
+  private AWSKinesisStreamListenerImpl listener;
+  private SCMSource[] sources;
+  private String project;
+
+  @Setup
+  public void setUp() {
+    index = new SCMSourceIndex();
+    listener = new AWSKinesisStreamListenerImpl();
+    sources = new SCMSource[jobCount];
+    for (int i = 0; i < jobCount; i++) {
+      GitSCMSource source = mock(GitSCMSource.class);
+      when(source.getRemote()).thenReturn("https://github.com/jenkinsci/repo-" + i + ".git");
+      WorkflowMultiBranchProject job = mock(WorkflowMultiBranchProject.class);
+      when(job.getFullName()).thenReturn("folder/job-" + i);
+      when(job.getSCMSources()).thenReturn(Collections.singletonList(source));
+      index.index(job);
+      sources[i] = source;
+    }
+    project = "jenkinsci/repo-" + jobCount / 2;
+  }
+
+  @Benchmark
+  public void indexLookup(Blackhole blackhole) {
+    Set<String> jobs = index.getJobsForProject(project);
+    blackhole.consume(jobs);
+    blackhole.consume(listener.triggerSCMBuildForSource(sources[jobCount / 2], project));
+  }
+
+  @Benchmark
+  public void scanAllSources(Blackhole blackhole) {
+    for (SCMSource source : sources) {
+      blackhole.consume(listener.triggerSCMBuildForSource(source, project));
+    }
+  }
+}
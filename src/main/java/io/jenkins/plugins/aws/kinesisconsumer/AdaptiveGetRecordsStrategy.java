@@ -0,0 +1,202 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.Gauge;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.MetricsRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.services.kinesis.model.GetRecordsResponse;
+import software.amazon.kinesis.retrieval.DataFetcher;
+import software.amazon.kinesis.retrieval.GetRecordsRetrievalStrategy;
+import software.amazon.kinesis.retrieval.polling.KinesisDataFetcher;
+import software.amazon.kinesis.retrieval.polling.SynchronousGetRecordsRetrievalStrategy;
+
+/**
+ * {@link GetRecordsRetrievalStrategy} adapting the pace and the size of the GetRecords calls of a
+ * shard to its load, in ADAPTIVE_POLLING mode.
+ *
+ * <p>The idle time before each call doubles every time a call returns no record, up to a maximum,
+ * and goes back to the configured idle time as soon as records are returned. When the shard falls
+ * behind the tip of the stream, calls are made back to back, within the limit of 5 calls per second
+ * per shard, and the number of records per call doubles up to 10000, until the shard has caught
+ * up.
+ */
+class AdaptiveGetRecordsStrategy implements GetRecordsRetrievalStrategy {
+  /** Kinesis serves at most 5 GetRecords calls per second per shard */
+  static final long MIN_CALL_INTERVAL_MS = 200;
+
+  static final int MAX_RECORDS = 10000;
+
+  /** Lag above which the shard is catching up rather than polling the tip of the stream */
+  static final long CATCH_UP_LAG_MS = TimeUnit.SECONDS.toMillis(10);
+
+  /** Sleep of the polling thread, replaced by tests */
+  @VisibleForTesting
+  interface Sleeper {
+    void sleep(long millis) throws InterruptedException;
+  }
+
+  private final GetRecordsRetrievalStrategy delegate;
+  private final IntConsumer maxRecordsSetter;
+  private final int baseMaxRecords;
+  private final long baseIdleMs;
+  private final long maxIdleMs;
+  private final LongSupplier clock;
+  private final Sleeper sleeper;
+  private final Gauge idleGauge;
+  private final Gauge maxRecordsGauge;
+
+  private int maxRecords;
+  private long idleMs;
+  private long lastCallMs = -MIN_CALL_INTERVAL_MS;
+
+  /**
+   * @param streamName the stream name
+   * @param shardId the shard polled
+   * @param dataFetcher the data fetcher making the GetRecords calls
+   * @param baseMaxRecords the number of records per call when the shard is not lagging
+   * @param baseIdleMs the idle time before a call after records were returned
+   * @param maxIdleMs the maximum idle time before a call while the shard is empty
+   */
+  AdaptiveGetRecordsStrategy(
+      String streamName,
+      String shardId,
+      AdaptiveKinesisDataFetcher dataFetcher,
+      int baseMaxRecords,
+      long baseIdleMs,
+      long maxIdleMs) {
+    this(
+        streamName,
+        shardId,
+        new SynchronousGetRecordsRetrievalStrategy(dataFetcher),
+        dataFetcher::maxRecords,
+        baseMaxRecords,
+        baseIdleMs,
+        maxIdleMs,
+        System::currentTimeMillis,
+        Thread::sleep);
+  }
+
+  @VisibleForTesting
+  AdaptiveGetRecordsStrategy(
+      String streamName,
+      String shardId,
+      GetRecordsRetrievalStrategy delegate,
+      IntConsumer maxRecordsSetter,
+      int baseMaxRecords,
+      long baseIdleMs,
+      long maxIdleMs,
+      LongSupplier clock,
+      Sleeper sleeper) {
+    this.delegate = delegate;
+    this.maxRecordsSetter = maxRecordsSetter;
+    this.baseMaxRecords = Math.max(1, Math.min(baseMaxRecords, MAX_RECORDS));
+    this.baseIdleMs = Math.max(0, baseIdleMs);
+    this.maxIdleMs = Math.max(this.baseIdleMs, maxIdleMs);
+    this.clock = clock;
+    this.sleeper = sleeper;
+    this.maxRecords = this.baseMaxRecords;
+    this.idleMs = this.baseIdleMs;
+    MetricsRegistry metrics = MetricsRegistry.get();
+    this.idleGauge =
+        metrics.gauge("kinesis_polling_idle_ms", "stream", streamName, "shard", shardId);
+    this.maxRecordsGauge =
+        metrics.gauge("kinesis_polling_max_records", "stream", streamName, "shard", shardId);
+  }
+
+  /**
+   * Wait for the current idle time, then get the next records of the shard and adapt the idle time
+   * and the number of records of the next call
+   *
+   * @param ignored the maximum number of records requested by the records publisher, superseded by
+   *     the adaptive one
+   * @return the response of the GetRecords call
+   * @throws AbortedException if the polling thread is interrupted while waiting, no call is made
+   */
+  @Override
+  public GetRecordsResponse getRecords(int ignored) {
+    long waitMs = Math.max(idleMs, MIN_CALL_INTERVAL_MS - (clock.getAsLong() - lastCallMs));
+    if (waitMs > 0) {
+      try {
+        sleeper.sleep(waitMs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw AbortedException.builder()
+            .message("Interrupted while waiting for the next GetRecords call")
+            .cause(e)
+            .build();
+      }
+    }
+    lastCallMs = clock.getAsLong();
+    GetRecordsResponse response;
+    try {
+      // The KCL strategies use the number of records of the data fetcher, not the one passed
+      maxRecordsSetter.accept(maxRecords);
+      response = delegate.getRecords(maxRecords);
+    } catch (RuntimeException e) {
+      // e.g. ProvisionedThroughputExceededException: back off before the next call
+      idleMs = Math.max(baseIdleMs, Math.min(maxIdleMs, Math.max(idleMs * 2, 1000)));
+      maxRecords = baseMaxRecords;
+      updateGauges();
+      throw e;
+    }
+    adapt(response);
+    return response;
+  }
+
+  private void adapt(GetRecordsResponse response) {
+    long lagMs = response.millisBehindLatest() == null ? 0 : response.millisBehindLatest();
+    if (lagMs > CATCH_UP_LAG_MS) {
+      idleMs = 0;
+      if (response.records().size() >= maxRecords) {
+        maxRecords = Math.min(MAX_RECORDS, maxRecords * 2);
+      }
+    } else if (response.records().isEmpty()) {
+      long longerIdleMs = Math.max(idleMs * 2, Math.max(baseIdleMs, MIN_CALL_INTERVAL_MS));
+      idleMs = Math.min(maxIdleMs, longerIdleMs);
+      maxRecords = baseMaxRecords;
+    } else {
+      idleMs = baseIdleMs;
+      maxRecords = baseMaxRecords;
+    }
+    updateGauges();
+  }
+
+  private void updateGauges() {
+    idleGauge.set(idleMs);
+    maxRecordsGauge.set(maxRecords);
+  }
+
+  @VisibleForTesting
+  long idleMs() {
+    return idleMs;
+  }
+
+  @VisibleForTesting
+  int maxRecords() {
+    return maxRecords;
+  }
+
+  @Override
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return delegate.isShutdown();
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public KinesisDataFetcher getDataFetcher() {
+    return delegate.getDataFetcher();
+  }
+
+  @Override
+  public DataFetcher dataFetcher() {
+    return delegate.dataFetcher();
+  }
+}
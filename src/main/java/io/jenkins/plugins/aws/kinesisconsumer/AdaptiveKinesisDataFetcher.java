@@ -0,0 +1,46 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+import software.amazon.awssdk.services.kinesis.model.GetRecordsRequest;
+import software.amazon.kinesis.metrics.MetricsFactory;
+import software.amazon.kinesis.retrieval.polling.KinesisDataFetcher;
+
+/**
+ * {@link KinesisDataFetcher} of the ADAPTIVE_POLLING mode, whose number of records per GetRecords
+ * call can be changed between calls. The KCL retrieval strategies ignore the number of records they
+ * are asked for, and always use the one the data fetcher was created with.
+ */
+class AdaptiveKinesisDataFetcher extends KinesisDataFetcher {
+  private volatile int maxRecords;
+
+  /**
+   * @param kinesisClient the Kinesis client
+   * @param streamName the stream name
+   * @param shardId the shard polled
+   * @param maxRecords the number of records per call, until changed
+   * @param metricsFactory the KCL metrics factory
+   */
+  AdaptiveKinesisDataFetcher(
+      KinesisAsyncClient kinesisClient,
+      String streamName,
+      String shardId,
+      int maxRecords,
+      MetricsFactory metricsFactory) {
+    super(kinesisClient, streamName, shardId, maxRecords, metricsFactory);
+    this.maxRecords = maxRecords;
+  }
+
+  /**
+   * Set the number of records of the next GetRecords calls
+   *
+   * @param maxRecords the maximum number of records per call
+   */
+  void maxRecords(int maxRecords) {
+    this.maxRecords = maxRecords;
+  }
+
+  @Override
+  public GetRecordsRequest getGetRecordsRequest(String nextIterator) {
+    return super.getGetRecordsRequest(nextIterator).toBuilder().limit(maxRecords).build();
+  }
+}
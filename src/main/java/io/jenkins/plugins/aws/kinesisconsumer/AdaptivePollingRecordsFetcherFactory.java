@@ -0,0 +1,67 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+import software.amazon.kinesis.metrics.MetricsFactory;
+import software.amazon.kinesis.retrieval.GetRecordsRetrievalStrategy;
+import software.amazon.kinesis.retrieval.RecordsPublisher;
+import software.amazon.kinesis.retrieval.polling.SimpleRecordsFetcherFactory;
+
+/**
+ * Records fetcher factory of the ADAPTIVE_POLLING mode: the records of each shard are prefetched
+ * as in POLLING mode, through an {@link AdaptiveGetRecordsStrategy} which paces the GetRecords
+ * calls itself, rather than after a fixed idle time
+ */
+class AdaptivePollingRecordsFetcherFactory extends SimpleRecordsFetcherFactory {
+  private final KinesisAsyncClient kinesisClient;
+  private final String streamName;
+  private final int baseMaxRecords;
+  private final long baseIdleMs;
+  private final long maxIdleMs;
+
+  /**
+   * @param kinesisClient the Kinesis client
+   * @param streamName the stream name
+   * @param baseMaxRecords the number of records per call when a shard is not lagging
+   * @param baseIdleMs the idle time before a call after records were returned
+   * @param maxIdleMs the maximum idle time before a call while a shard is empty
+   */
+  AdaptivePollingRecordsFetcherFactory(
+      KinesisAsyncClient kinesisClient,
+      String streamName,
+      int baseMaxRecords,
+      long baseIdleMs,
+      long maxIdleMs) {
+    this.kinesisClient = kinesisClient;
+    this.streamName = streamName;
+    this.baseMaxRecords = baseMaxRecords;
+    this.baseIdleMs = baseIdleMs;
+    this.maxIdleMs = maxIdleMs;
+    super.idleMillisBetweenCalls(0);
+  }
+
+  /**
+   * The strategy created by the KCL is replaced, as its data fetcher makes calls with a fixed
+   * number of records
+   */
+  @Override
+  public RecordsPublisher createRecordsFetcher(
+      GetRecordsRetrievalStrategy getRecordsRetrievalStrategy,
+      String shardId,
+      MetricsFactory metricsFactory,
+      int maxRecords) {
+    AdaptiveGetRecordsStrategy adaptiveStrategy =
+        new AdaptiveGetRecordsStrategy(
+            streamName,
+            shardId,
+            new AdaptiveKinesisDataFetcher(
+                kinesisClient, streamName, shardId, baseMaxRecords, metricsFactory),
+            baseMaxRecords,
+            baseIdleMs,
+            maxIdleMs);
+    return super.createRecordsFetcher(adaptiveStrategy, shardId, metricsFactory, maxRecords);
+  }
+
+  /** The idle time is managed by the {@link AdaptiveGetRecordsStrategy} of each shard */
+  @Override
+  public void idleMillisBetweenCalls(long idleMillisBetweenCalls) {}
+}
@@ -1,10 +1,16 @@
 package io.jenkins.plugins.aws.kinesisconsumer;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.flogger.FluentLogger;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Duration;
 import org.apache.commons.lang.StringUtils;
 import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
+import software.amazon.awssdk.core.client.builder.SdkAsyncClientBuilder;
+import software.amazon.awssdk.http.nio.netty.Http2Configuration;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
 import software.amazon.awssdk.regions.Region;
 
 /**
@@ -15,12 +21,15 @@ import software.amazon.awssdk.regions.Region;
 class AsyncClientBuilder {
   protected static final FluentLogger logger = FluentLogger.forEnclosingClass();
   protected final GlobalKinesisConfiguration globalKinesisConfiguration;
+  private final SdkEventLoopGroup eventLoopGroup;
 
-  AsyncClientBuilder(GlobalKinesisConfiguration configuration) {
+  AsyncClientBuilder(GlobalKinesisConfiguration configuration, SdkEventLoopGroup eventLoopGroup) {
     this.globalKinesisConfiguration = configuration;
+    this.eventLoopGroup = eventLoopGroup;
   }
 
-  protected <T extends AwsClientBuilder<?, ?>> T baseConfig(T builder) {
+  protected <T extends AwsClientBuilder<?, ?> & SdkAsyncClientBuilder<?, ?>> T baseConfig(
+      T builder) {
     if (StringUtils.isNotEmpty(globalKinesisConfiguration.getRegion())) {
       builder.region(Region.of(globalKinesisConfiguration.getRegion()));
     }
@@ -31,6 +40,43 @@ class AsyncClientBuilder {
         logger.atSevere().withCause(e).log("Could not set local endpoint");
       }
     }
+    builder.httpClientBuilder(httpClientBuilder(NettyNioAsyncHttpClient.builder()));
     return builder;
   }
+
+  /**
+   * Netty HTTP client settings from the transport section of the configuration. Settings which are
+   * not configured keep the SDK defaults, and service defaults, like HTTP/2 for Kinesis, still
+   * apply.
+   *
+   * @param builder the Netty HTTP client builder to configure
+   * @return the configured builder
+   */
+  @VisibleForTesting
+  NettyNioAsyncHttpClient.Builder httpClientBuilder(NettyNioAsyncHttpClient.Builder builder) {
+    NettyNioAsyncHttpClient.Builder httpClientBuilder = builder.eventLoopGroup(eventLoopGroup);
+    if (globalKinesisConfiguration.getHttpMaxConcurrency() != null) {
+      httpClientBuilder.maxConcurrency(globalKinesisConfiguration.getHttpMaxConcurrency());
+    }
+    if (globalKinesisConfiguration.getHttpConnectionAcquisitionTimeoutMs() != null) {
+      httpClientBuilder.connectionAcquisitionTimeout(
+          Duration.ofMillis(globalKinesisConfiguration.getHttpConnectionAcquisitionTimeoutMs()));
+    }
+    if (globalKinesisConfiguration.getHttpReadTimeoutMs() != null) {
+      httpClientBuilder.readTimeout(
+          Duration.ofMillis(globalKinesisConfiguration.getHttpReadTimeoutMs()));
+    }
+    if (globalKinesisConfiguration.getHttpWriteTimeoutMs() != null) {
+      httpClientBuilder.writeTimeout(
+          Duration.ofMillis(globalKinesisConfiguration.getHttpWriteTimeoutMs()));
+    }
+    Http2Configuration.Builder http2Configuration = Http2Configuration.builder();
+    if (globalKinesisConfiguration.getHttp2MaxStreams() != null) {
+      http2Configuration.maxStreams(globalKinesisConfiguration.getHttp2MaxStreams().longValue());
+    }
+    if (globalKinesisConfiguration.getHttp2InitialWindowSize() != null) {
+      http2Configuration.initialWindowSize(globalKinesisConfiguration.getHttp2InitialWindowSize());
+    }
+    return httpClientBuilder.http2Configuration(http2Configuration.build());
+  }
 }
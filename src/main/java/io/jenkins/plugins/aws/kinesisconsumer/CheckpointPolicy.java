@@ -0,0 +1,100 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import com.google.common.flogger.FluentLogger;
+import java.util.concurrent.TimeUnit;
+import software.amazon.kinesis.exceptions.InvalidStateException;
+import software.amazon.kinesis.exceptions.KinesisClientLibDependencyException;
+import software.amazon.kinesis.exceptions.ShutdownException;
+import software.amazon.kinesis.exceptions.ThrottlingException;
+import software.amazon.kinesis.processor.RecordProcessorCheckpointer;
+import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
+
+/**
+ * Periodic checkpointing of a shard while processing records, every N records and/or every T
+ * seconds.
+ *
+ * <p>At most one checkpoint is taken per {@link KinesisRecordProcessor#processRecords} call, at the
+ * position of the last record delivered to the listeners, so that the number of lease table writes
+ * stays bounded regardless of the records rate.
+ */
+class CheckpointPolicy {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private final String streamName;
+  private final String shardId;
+  private final int everyRecords;
+  private final long intervalMs;
+
+  private ExtendedSequenceNumber lastCheckpointed;
+  private long checkpointedRecords;
+  private long lastCheckpointMs = System.currentTimeMillis();
+
+  /**
+   * @param streamName the stream name
+   * @param shardId the shard to checkpoint
+   * @param everyRecords checkpoint after this number of records, 0 to disable
+   * @param intervalSeconds checkpoint after this number of seconds, 0 to disable
+   */
+  CheckpointPolicy(String streamName, String shardId, int everyRecords, int intervalSeconds) {
+    this.streamName = streamName;
+    this.shardId = shardId;
+    this.everyRecords = Math.max(0, everyRecords);
+    this.intervalMs = TimeUnit.SECONDS.toMillis(Math.max(0, intervalSeconds));
+  }
+
+  boolean isEnabled() {
+    return everyRecords > 0 || intervalMs > 0;
+  }
+
+  /**
+   * Get the number of records delivered to the listeners since the last checkpoint
+   *
+   * @param progress the progress of the shard
+   * @return the number of records not checkpointed yet
+   */
+  long recordsSinceCheckpoint(ShardProgress progress) {
+    return progress.dispatchedRecords() - checkpointedRecords;
+  }
+
+  /**
+   * Checkpoint the last record delivered to the listeners, if the policy thresholds are reached
+   *
+   * @param progress the progress of the shard
+   * @param checkpointer the checkpointer of the shard
+   */
+  void maybeCheckpoint(ShardProgress progress, RecordProcessorCheckpointer checkpointer) {
+    if (!isEnabled()) {
+      return;
+    }
+    ExtendedSequenceNumber position = progress.lastDispatched();
+    if (position == null || position.equals(lastCheckpointed)) {
+      return;
+    }
+    long dispatchedRecords = progress.dispatchedRecords();
+    long now = System.currentTimeMillis();
+    boolean due =
+        (everyRecords > 0 && dispatchedRecords - checkpointedRecords >= everyRecords)
+            || (intervalMs > 0 && now - lastCheckpointMs >= intervalMs);
+    if (!due) {
+      return;
+    }
+
+    try {
+      checkpointer.checkpoint(position.sequenceNumber(), position.subSequenceNumber());
+      logger.atFine().log(
+          "[streamName: %s] [shardId: %s] Checkpointed @ Sequence: %s",
+          streamName, shardId, position);
+      lastCheckpointed = position;
+      checkpointedRecords = dispatchedRecords;
+      lastCheckpointMs = now;
+    } catch (ThrottlingException | KinesisClientLibDependencyException e) {
+      logger.atWarning().withCause(e).log(
+          "[streamName: %s] [shardId: %s] Could not checkpoint, will retry with the next records",
+          streamName, shardId);
+    } catch (ShutdownException | InvalidStateException e) {
+      logger.atSevere().withCause(e).log(
+          "[streamName: %s] [shardId: %s] Exception while checkpointing. Giving up.",
+          streamName, shardId);
+    }
+  }
+}
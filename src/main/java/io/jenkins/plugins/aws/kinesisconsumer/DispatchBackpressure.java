@@ -0,0 +1,13 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+/**
+ * Policy applied by the {@link RecordDispatcher} when the dispatch queue of a stream is full
+ */
+public enum DispatchBackpressure {
+  /** Block the shard consumer until the listeners catch up */
+  BLOCK,
+  /** Discard the oldest queued records to make room for the new ones */
+  DROP_OLDEST,
+  /** Overflow to a file on disk, drained once the in-memory queue is empty */
+  SPILL
+}
@@ -3,6 +3,7 @@ package io.jenkins.plugins.aws.kinesisconsumer;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 
 /**
@@ -15,8 +16,9 @@ class DynamoDbAsyncClientProvider extends AsyncClientBuilder
     implements Provider<DynamoDbAsyncClient> {
 
   @Inject
-  DynamoDbAsyncClientProvider(GlobalKinesisConfiguration configuration) {
-    super(configuration);
+  DynamoDbAsyncClientProvider(
+      GlobalKinesisConfiguration configuration, SdkEventLoopGroup eventLoopGroup) {
+    super(configuration, eventLoopGroup);
   }
 
   @Override
@@ -0,0 +1,159 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import software.amazon.kinesis.coordinator.CoordinatorFactory;
+import software.amazon.kinesis.coordinator.SchedulerCoordinatorFactory;
+
+/**
+ * Provides the threads of the consumers: scheduler threads, shard consumer pools and dispatch
+ * threads, named after the stream they work for. Depending on the configured {@link ThreadType}
+ * they are virtual threads or platform threads, the shard consumers of a scheduler sharing a
+ * bounded pool rather than the unbounded pool created by the Kinesis Client Library.
+ */
+@Singleton
+class ExecutorProvider {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final VirtualThreads VIRTUAL_THREADS = VirtualThreads.lookup();
+  private static final AtomicBoolean VIRTUAL_THREADS_WARNED = new AtomicBoolean();
+
+  private final GlobalKinesisConfiguration configuration;
+
+  @Inject
+  ExecutorProvider(GlobalKinesisConfiguration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * Get a factory of threads named after a prefix followed by a counter
+   *
+   * @param namePrefix the prefix of the thread names
+   * @return the thread factory
+   */
+  ThreadFactory threadFactory(String namePrefix) {
+    if (useVirtualThreads()) {
+      return VIRTUAL_THREADS.factory(namePrefix);
+    }
+    return platformThreadFactory(namePrefix);
+  }
+
+  /**
+   * Get a factory of daemon platform threads named after a prefix followed by a counter
+   *
+   * @param namePrefix the prefix of the thread names
+   * @return the thread factory
+   */
+  static ThreadFactory platformThreadFactory(String namePrefix) {
+    return new ThreadFactoryBuilder()
+        .setNameFormat(namePrefix.replace("%", "%%") + "%d")
+        .setDaemon(true)
+        .build();
+  }
+
+  /**
+   * Create the executor running the shard consumers of a scheduler: a thread per task when using
+   * virtual threads, or a pool bounded to the configured number of threads otherwise
+   *
+   * @param streamName the stream consumed by the scheduler
+   * @return the executor, shut down by the scheduler
+   */
+  ExecutorService newShardConsumerExecutor(String streamName) {
+    String namePrefix = String.format("kinesis-shard-%s-", streamName);
+    if (useVirtualThreads()) {
+      return VIRTUAL_THREADS.newThreadPerTaskExecutor(namePrefix);
+    }
+    int threads = configuration.getShardConsumerThreads();
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            60,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            platformThreadFactory(namePrefix));
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Get the coordinator factory of a scheduler, running its shard consumers on the executor of
+   * {@link #newShardConsumerExecutor(String)}
+   *
+   * @param streamName the stream consumed by the scheduler
+   * @return the coordinator factory
+   */
+  CoordinatorFactory coordinatorFactory(String streamName) {
+    return new SchedulerCoordinatorFactory() {
+      @Override
+      public ExecutorService createExecutorService() {
+        return newShardConsumerExecutor(streamName);
+      }
+    };
+  }
+
+  private boolean useVirtualThreads() {
+    if (!ThreadType.VIRTUAL.name().equals(configuration.getThreadType())) {
+      return false;
+    }
+    if (VIRTUAL_THREADS == null) {
+      // Logged once rather than for each stream and thread pool
+      if (VIRTUAL_THREADS_WARNED.compareAndSet(false, true)) {
+        logger.atWarning().log(
+            "Virtual threads require Java 21 or later, falling back to platform threads");
+      }
+      return false;
+    }
+    return true;
+  }
+
+  /** Virtual threads API, looked up by reflection to keep running on older Java versions */
+  private static class VirtualThreads {
+    private final Method ofVirtual;
+    private final Method name;
+    private final Method factory;
+    private final Method newThreadPerTaskExecutor;
+
+    private VirtualThreads() throws ReflectiveOperationException {
+      Class<?> builder = Class.forName("java.lang.Thread$Builder");
+      this.ofVirtual = Thread.class.getMethod("ofVirtual");
+      this.name = builder.getMethod("name", String.class, long.class);
+      this.factory = builder.getMethod("factory");
+      this.newThreadPerTaskExecutor =
+          Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+    }
+
+    static VirtualThreads lookup() {
+      try {
+        return new VirtualThreads();
+      } catch (ReflectiveOperationException e) {
+        return null;
+      }
+    }
+
+    ThreadFactory factory(String namePrefix) {
+      try {
+        return (ThreadFactory) factory.invoke(name.invoke(ofVirtual.invoke(null), namePrefix, 0L));
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("Could not create virtual thread factory", e);
+      }
+    }
+
+    ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+      try {
+        return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory(namePrefix));
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("Could not create virtual thread executor", e);
+      }
+    }
+  }
+}
@@ -1,12 +1,20 @@
 package io.jenkins.plugins.aws.kinesisconsumer;
 
 import com.google.common.flogger.FluentLogger;
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.JsonPath;
 import hudson.Extension;
 import hudson.ExtensionList;
 import hudson.util.FormValidation;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 import jenkins.model.GlobalConfiguration;
 import net.sf.json.JSONObject;
@@ -18,10 +26,14 @@ import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.kinesis.common.InitialPositionInStream;
+import software.amazon.kinesis.metrics.MetricsLevel;
 
 /**
  * Class representing the Global Kinesis configuration
  *
+ * <p>The HTTP transport settings are applied when the AWS clients are created, i.e. on Jenkins
+ * start.
+ *
  * @author Fabio Ponciroli
  */
 @Extension
@@ -38,8 +50,46 @@ public class GlobalKinesisConfiguration extends GlobalConfiguration {
   private String localEndpoint;
   private String applicationName;
   private Integer shutdownTimeoutMs;
+  private boolean multiStreamScheduler;
+  private Integer httpMaxConcurrency;
+  private Integer httpConnectionAcquisitionTimeoutMs;
+  private Integer httpReadTimeoutMs;
+  private Integer httpWriteTimeoutMs;
+  private Integer http2MaxStreams;
+  private Integer http2InitialWindowSize;
+  private Integer httpEventLoopThreads;
+  private String metricsSink;
+  private String metricsLevel;
+  private String metricsDimensions;
+  private Integer metricsBufferTimeMs;
+  private Integer scmTriggerQuietPeriodMs;
+  private Integer scmTriggerMaxWaitMs;
+  private String threadType;
+  private Integer shardConsumerThreads;
+  private Integer lagWarningThresholdMs;
+  private Integer lagAlertThresholdMs;
+
+  /**
+   * Immutable snapshot of the stream configurations keyed by stream name. It is replaced as a whole
+   * whenever the configuration changes, so that consumer threads can look up a stream without
+   * iterating or locking.
+   */
+  private transient volatile Map<String, KinesisStreamItem> kinesisStreamItemsByName =
+      Collections.emptyMap();
 
   static final Integer DEFAULT_SHUTDOWN_TIMEOUT_MS = 20000;
+  static final Integer DEFAULT_SCM_TRIGGER_MAX_WAIT_MS = 60000;
+
+  /**
+   * Set whether all the streams are consumed by a single multi-stream scheduler, sharing one lease
+   * table named after the application name, rather than by one scheduler per stream
+   *
+   * @param multiStreamScheduler true to share a single scheduler
+   */
+  @DataBoundSetter
+  public void setMultiStreamScheduler(boolean multiStreamScheduler) {
+    this.multiStreamScheduler = multiStreamScheduler;
+  }
 
   /**
    * Set AWS Region when loading the global configuration page
@@ -93,6 +143,7 @@ public class GlobalKinesisConfiguration extends GlobalConfiguration {
   @DataBoundSetter
   public void setKinesisStreamItems(List<KinesisStreamItem> kinesisStreamItems) {
     this.kinesisStreamItems = kinesisStreamItems;
+    updateKinesisStreamItemsByName();
   }
 
   /**
@@ -106,6 +157,183 @@ public class GlobalKinesisConfiguration extends GlobalConfiguration {
     this.localEndpoint = localEndpoint;
   }
 
+  /**
+   * Set the maximum number of concurrent connections, or HTTP/2 streams, of each AWS client
+   *
+   * @param httpMaxConcurrency connections, unset to keep the SDK default
+   */
+  @DataBoundSetter
+  public void setHttpMaxConcurrency(Integer httpMaxConcurrency) {
+    this.httpMaxConcurrency = httpMaxConcurrency;
+  }
+
+  /**
+   * Set the maximum time (milliseconds) waiting to acquire a connection from the pool of each AWS
+   * client
+   *
+   * @param httpConnectionAcquisitionTimeoutMs timeout in milliseconds, unset to keep the SDK
+   *     default
+   */
+  @DataBoundSetter
+  public void setHttpConnectionAcquisitionTimeoutMs(Integer httpConnectionAcquisitionTimeoutMs) {
+    this.httpConnectionAcquisitionTimeoutMs = httpConnectionAcquisitionTimeoutMs;
+  }
+
+  /**
+   * Set the maximum time (milliseconds) waiting for data to be read from an established connection
+   *
+   * @param httpReadTimeoutMs timeout in milliseconds, unset to keep the SDK default
+   */
+  @DataBoundSetter
+  public void setHttpReadTimeoutMs(Integer httpReadTimeoutMs) {
+    this.httpReadTimeoutMs = httpReadTimeoutMs;
+  }
+
+  /**
+   * Set the maximum time (milliseconds) waiting for data to be written to an established
+   * connection
+   *
+   * @param httpWriteTimeoutMs timeout in milliseconds, unset to keep the SDK default
+   */
+  @DataBoundSetter
+  public void setHttpWriteTimeoutMs(Integer httpWriteTimeoutMs) {
+    this.httpWriteTimeoutMs = httpWriteTimeoutMs;
+  }
+
+  /**
+   * Set the maximum number of concurrent streams on a single HTTP/2 connection, used by enhanced
+   * fan-out
+   *
+   * @param http2MaxStreams number of streams, unset to keep the SDK default
+   */
+  @DataBoundSetter
+  public void setHttp2MaxStreams(Integer http2MaxStreams) {
+    this.http2MaxStreams = http2MaxStreams;
+  }
+
+  /**
+   * Set the initial HTTP/2 flow control window size (bytes), used by enhanced fan-out
+   *
+   * @param http2InitialWindowSize window size in bytes, unset to keep the SDK default
+   */
+  @DataBoundSetter
+  public void setHttp2InitialWindowSize(Integer http2InitialWindowSize) {
+    this.http2InitialWindowSize = http2InitialWindowSize;
+  }
+
+  /**
+   * Set the number of threads of the Netty event loop group shared by all the AWS clients
+   *
+   * @param httpEventLoopThreads number of threads, unset to keep the SDK default
+   */
+  @DataBoundSetter
+  public void setHttpEventLoopThreads(Integer httpEventLoopThreads) {
+    this.httpEventLoopThreads = httpEventLoopThreads;
+  }
+
+  /**
+   * Set where the metrics of the Kinesis schedulers are sent
+   *
+   * @param metricsSink the sink. Valid values: CLOUDWATCH, LOCAL, NONE
+   */
+  @DataBoundSetter
+  public void setMetricsSink(String metricsSink) {
+    this.metricsSink = StringUtils.stripToNull(metricsSink);
+  }
+
+  /**
+   * Set the kind of threads running the schedulers, the shard consumers and the record dispatch
+   *
+   * @param threadType the thread type. Valid values: PLATFORM, VIRTUAL
+   */
+  @DataBoundSetter
+  public void setThreadType(String threadType) {
+    this.threadType = StringUtils.stripToNull(threadType);
+  }
+
+  /**
+   * Set the maximum number of platform threads running the shard consumers of a scheduler
+   *
+   * @param shardConsumerThreads number of threads, unset for 4 threads per processor
+   */
+  @DataBoundSetter
+  public void setShardConsumerThreads(Integer shardConsumerThreads) {
+    this.shardConsumerThreads = shardConsumerThreads;
+  }
+
+  /**
+   * Set the level of the metrics of the Kinesis schedulers
+   *
+   * @param metricsLevel the level. Valid values: NONE, SUMMARY, DETAILED
+   */
+  @DataBoundSetter
+  public void setMetricsLevel(String metricsLevel) {
+    this.metricsLevel = StringUtils.stripToNull(metricsLevel);
+  }
+
+  /**
+   * Set the dimensions of the metrics of the Kinesis schedulers
+   *
+   * @param metricsDimensions comma separated dimensions, i.e. Operation,ShardId, or ALL
+   */
+  @DataBoundSetter
+  public void setMetricsDimensions(String metricsDimensions) {
+    this.metricsDimensions = StringUtils.stripToNull(metricsDimensions);
+  }
+
+  /**
+   * Set how long metrics are buffered before being published to CloudWatch
+   *
+   * @param metricsBufferTimeMs buffer time in milliseconds, unset to keep the KCL default
+   */
+  @DataBoundSetter
+  public void setMetricsBufferTimeMs(Integer metricsBufferTimeMs) {
+    this.metricsBufferTimeMs = metricsBufferTimeMs;
+  }
+
+  /**
+   * Set the quiet period (milliseconds) within which SCM update triggers for the same job and SCM
+   * source are coalesced into one.
+   *
+   * @param scmTriggerQuietPeriodMs quiet period in milliseconds, 0 to trigger for every record
+   */
+  @DataBoundSetter
+  public void setScmTriggerQuietPeriodMs(Integer scmTriggerQuietPeriodMs) {
+    this.scmTriggerQuietPeriodMs = scmTriggerQuietPeriodMs;
+  }
+
+  /**
+   * Set the maximum time (milliseconds) a coalesced SCM update trigger is delayed.
+   *
+   * @param scmTriggerMaxWaitMs maximum delay in milliseconds
+   */
+  @DataBoundSetter
+  public void setScmTriggerMaxWaitMs(Integer scmTriggerMaxWaitMs) {
+    this.scmTriggerMaxWaitMs = scmTriggerMaxWaitMs;
+  }
+
+  /**
+   * Set the lag (milliseconds behind the tip of the stream) above which a shard is logged as
+   * lagging
+   *
+   * @param lagWarningThresholdMs lag in milliseconds, unset to disable
+   */
+  @DataBoundSetter
+  public void setLagWarningThresholdMs(Integer lagWarningThresholdMs) {
+    this.lagWarningThresholdMs = lagWarningThresholdMs;
+  }
+
+  /**
+   * Set the lag (milliseconds behind the tip of the stream) above which a shard is reported to the
+   * administrators
+   *
+   * @param lagAlertThresholdMs lag in milliseconds, unset to disable
+   */
+  @DataBoundSetter
+  public void setLagAlertThresholdMs(Integer lagAlertThresholdMs) {
+    this.lagAlertThresholdMs = lagAlertThresholdMs;
+  }
+
   public GlobalKinesisConfiguration() {
     load();
   }
@@ -128,6 +356,15 @@ public class GlobalKinesisConfiguration extends GlobalConfiguration {
     return kinesisConsumerEnabled;
   }
 
+  /**
+   * Indicates if all the streams are consumed by a single multi-stream scheduler
+   *
+   * @return true if a single scheduler is shared by all the streams
+   */
+  public boolean isMultiStreamScheduler() {
+    return multiStreamScheduler;
+  }
+
   /**
    * Get the AWS Region to connect to from the configuration page
    *
@@ -159,6 +396,168 @@ public class GlobalKinesisConfiguration extends GlobalConfiguration {
     return Optional.ofNullable(kinesisStreamItems).orElse(Collections.emptyList());
   }
 
+  /**
+   * Get the maximum number of concurrent connections, or HTTP/2 streams, of each AWS client
+   *
+   * @return the configured value, or null to keep the SDK default
+   */
+  public Integer getHttpMaxConcurrency() {
+    return positiveOrNull(httpMaxConcurrency);
+  }
+
+  /**
+   * Get the maximum time (milliseconds) waiting to acquire a connection from the pool of each AWS
+   * client
+   *
+   * @return the configured value, or null to keep the SDK default
+   */
+  public Integer getHttpConnectionAcquisitionTimeoutMs() {
+    return positiveOrNull(httpConnectionAcquisitionTimeoutMs);
+  }
+
+  /**
+   * Get the maximum time (milliseconds) waiting for data to be read from an established connection
+   *
+   * @return the configured value, or null to keep the SDK default
+   */
+  public Integer getHttpReadTimeoutMs() {
+    return positiveOrNull(httpReadTimeoutMs);
+  }
+
+  /**
+   * Get the maximum time (milliseconds) waiting for data to be written to an established connection
+   *
+   * @return the configured value, or null to keep the SDK default
+   */
+  public Integer getHttpWriteTimeoutMs() {
+    return positiveOrNull(httpWriteTimeoutMs);
+  }
+
+  /**
+   * Get the maximum number of concurrent streams on a single HTTP/2 connection, used by enhanced
+   * fan-out
+   *
+   * @return the configured value, or null to keep the SDK default
+   */
+  public Integer getHttp2MaxStreams() {
+    return positiveOrNull(http2MaxStreams);
+  }
+
+  /**
+   * Get the initial HTTP/2 flow control window size (bytes), used by enhanced fan-out
+   *
+   * @return the configured value, or null to keep the SDK default
+   */
+  public Integer getHttp2InitialWindowSize() {
+    return positiveOrNull(http2InitialWindowSize);
+  }
+
+  /**
+   * Get the number of threads of the Netty event loop group shared by all the AWS clients
+   *
+   * @return the configured value, or null to keep the SDK default
+   */
+  public Integer getHttpEventLoopThreads() {
+    return positiveOrNull(httpEventLoopThreads);
+  }
+
+  /**
+   * Get where the metrics of the Kinesis schedulers are sent
+   *
+   * @return the metrics sink, CLOUDWATCH by default
+   */
+  public String getMetricsSink() {
+    return metricsSink == null
+        ? MetricsSink.CLOUDWATCH.name()
+        : metricsSink.toUpperCase(Locale.ROOT);
+  }
+
+  /**
+   * Get the kind of threads running the schedulers, the shard consumers and the record dispatch
+   *
+   * @return the thread type, PLATFORM by default
+   */
+  public String getThreadType() {
+    return threadType == null ? ThreadType.PLATFORM.name() : threadType.toUpperCase(Locale.ROOT);
+  }
+
+  /**
+   * Get the maximum number of platform threads running the shard consumers of a scheduler
+   *
+   * @return the number of threads, 4 per processor by default
+   */
+  public Integer getShardConsumerThreads() {
+    return Optional.ofNullable(positiveOrNull(shardConsumerThreads))
+        .orElse(4 * Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Get the level of the metrics of the Kinesis schedulers
+   *
+   * @return the metrics level, DETAILED by default
+   */
+  public String getMetricsLevel() {
+    return metricsLevel == null
+        ? MetricsLevel.DETAILED.name()
+        : metricsLevel.toUpperCase(Locale.ROOT);
+  }
+
+  /**
+   * Get the dimensions of the metrics of the Kinesis schedulers
+   *
+   * @return comma separated dimensions, or null to keep the KCL default
+   */
+  public String getMetricsDimensions() {
+    return metricsDimensions;
+  }
+
+  /**
+   * Get how long metrics are buffered before being published to CloudWatch
+   *
+   * @return the buffer time in milliseconds, or null to keep the KCL default
+   */
+  public Integer getMetricsBufferTimeMs() {
+    return positiveOrNull(metricsBufferTimeMs);
+  }
+
+  /**
+   * Get the quiet period within which SCM update triggers for the same job and SCM source are
+   * coalesced
+   *
+   * @return the quiet period in milliseconds, 0 when disabled
+   */
+  public Integer getScmTriggerQuietPeriodMs() {
+    return scmTriggerQuietPeriodMs == null ? 0 : Math.max(0, scmTriggerQuietPeriodMs);
+  }
+
+  /**
+   * Get the maximum time a coalesced SCM update trigger is delayed
+   *
+   * @return the maximum delay in milliseconds
+   */
+  public Integer getScmTriggerMaxWaitMs() {
+    return Optional.ofNullable(positiveOrNull(scmTriggerMaxWaitMs))
+        .orElse(DEFAULT_SCM_TRIGGER_MAX_WAIT_MS);
+  }
+
+  /**
+   * Get the lag above which a shard is logged as lagging
+   *
+   * @return the lag in milliseconds, or null when disabled
+   */
+  public Integer getLagWarningThresholdMs() {
+    return positiveOrNull(lagWarningThresholdMs);
+  }
+
+  /**
+   * Get the lag above which a shard is reported to the administrators
+   *
+   * @return the lag in milliseconds, or null when disabled
+   */
+  public Integer getLagAlertThresholdMs() {
+    return positiveOrNull(lagAlertThresholdMs);
+  }
+
   /**
    * Get the local endpoint to consume from rather than the AWS service
    *
@@ -252,6 +651,126 @@ public class GlobalKinesisConfiguration extends GlobalConfiguration {
     return FormValidation.error(errorMessage);
   }
 
+  /**
+   * Checks the dispatch backpressure policy is valid.
+   *
+   * @param value the backpressure policy. Valid values: BLOCK, DROP_OLDEST, SPILL
+   * @return FormValidation object that indicates ok or error.
+   */
+  public FormValidation doCheckDispatchBackpressure(@QueryParameter String value) {
+    return checkEnumValue(value, DispatchBackpressure.values(), "backpressure policy");
+  }
+
+  /**
+   * Checks the retrieval mode is valid.
+   *
+   * @param value the retrieval mode. Valid values: FAN_OUT, POLLING, ADAPTIVE_POLLING
+   * @return FormValidation object that indicates ok or error.
+   */
+  public FormValidation doCheckRetrievalMode(@QueryParameter String value) {
+    return checkEnumValue(value, RetrievalMode.values(), "retrieval mode");
+  }
+
+  /**
+   * Checks the metrics sink is valid.
+   *
+   * @param value the metrics sink. Valid values: CLOUDWATCH, LOCAL, NONE
+   * @return FormValidation object that indicates ok or error.
+   */
+  public FormValidation doCheckMetricsSink(@QueryParameter String value) {
+    return checkEnumValue(value, MetricsSink.values(), "metrics sink");
+  }
+
+  /**
+   * Checks the thread type is valid.
+   *
+   * @param value the thread type. Valid values: PLATFORM, VIRTUAL
+   * @return FormValidation object that indicates ok or error.
+   */
+  public FormValidation doCheckThreadType(@QueryParameter String value) {
+    return checkEnumValue(value, ThreadType.values(), "thread type");
+  }
+
+  /**
+   * Checks the metrics level is valid.
+   *
+   * @param value the metrics level. Valid values: NONE, SUMMARY, DETAILED
+   * @return FormValidation object that indicates ok or error.
+   */
+  public FormValidation doCheckMetricsLevel(@QueryParameter String value) {
+    return checkEnumValue(value, MetricsLevel.values(), "metrics level");
+  }
+
+  /**
+   * Checks the filter JSON Path is valid.
+   *
+   * @param value the filter JSON Path
+   * @return FormValidation object that indicates ok or error.
+   */
+  public FormValidation doCheckFilterJsonPath(@QueryParameter String value) {
+    String val = StringUtils.stripToNull(value);
+    if (val == null) {
+      return FormValidation.ok();
+    }
+    try {
+      JsonPath.compile(val);
+      return FormValidation.ok();
+    } catch (InvalidPathException e) {
+      return FormValidation.error("'%s' is not a valid JSON Path: %s", value, e.getMessage());
+    }
+  }
+
+  /**
+   * Checks the filter payload regular expression is valid.
+   *
+   * @param value the regular expression
+   * @return FormValidation object that indicates ok or error.
+   */
+  public FormValidation doCheckFilterPayloadRegex(@QueryParameter String value) {
+    return checkRegex(value);
+  }
+
+  /**
+   * Checks the filter partition key regular expression is valid.
+   *
+   * @param value the regular expression
+   * @return FormValidation object that indicates ok or error.
+   */
+  public FormValidation doCheckFilterPartitionKeyRegex(@QueryParameter String value) {
+    return checkRegex(value);
+  }
+
+  private static FormValidation checkRegex(String value) {
+    String val = StringUtils.stripToNull(value);
+    if (val == null) {
+      return FormValidation.ok();
+    }
+    try {
+      Pattern.compile(val);
+      return FormValidation.ok();
+    } catch (PatternSyntaxException e) {
+      return FormValidation.error(
+          "'%s' is not a valid regular expression: %s", value, e.getDescription());
+    }
+  }
+
+  private static FormValidation checkEnumValue(String value, Enum<?>[] values, String what) {
+    String val = StringUtils.stripToNull(value);
+    if (val == null) {
+      return FormValidation.ok();
+    }
+
+    if (Arrays.stream(values).anyMatch(v -> v.name().equalsIgnoreCase(val)))
+      return FormValidation.ok();
+
+    String errorMessage =
+        String.format(
+            "'%s' is not a valid %s. Valid values: %s",
+            value, what, Arrays.stream(values).map(Enum::name).collect(Collectors.joining(", ")));
+    logger.atSevere().log(errorMessage);
+    return FormValidation.error(errorMessage);
+  }
+
   /**
    * @param req {@link StaplerRequest} submitted when saving the configuration page
    * @param json JSON containing the configuration parameters set
@@ -259,21 +778,54 @@ public class GlobalKinesisConfiguration extends GlobalConfiguration {
    */
   @Override
   public boolean configure(StaplerRequest req, JSONObject json) {
-    if (kinesisStreamItems != null) {
-      kinesisStreamItems.clear();
-    }
+    kinesisStreamItems = null;
     req.bindJSON(this, json);
+    updateKinesisStreamItemsByName();
     save();
     return true;
   }
 
+  /** Load the configuration from disk and rebuild the stream configurations snapshot */
+  @Override
+  public synchronized void load() {
+    super.load();
+    updateKinesisStreamItemsByName();
+  }
+
+  /**
+   * Get the configuration of a stream
+   *
+   * @param streamName the stream name
+   * @return the stream configuration
+   * @throws IllegalArgumentException if the stream is not configured
+   */
   public KinesisStreamItem getKinesisStreamItemsForStream(String streamName) {
-    return getKinesisStreamItems().stream()
-        .filter(s -> streamName.equals(s.getStreamName()))
-        .findFirst()
-        .orElseThrow(
-            () ->
-                new IllegalArgumentException(
-                    String.format("Could not find stream %s", streamName)));
+    KinesisStreamItem kinesisStreamItem = kinesisStreamItemsByName.get(streamName);
+    if (kinesisStreamItem == null) {
+      throw new IllegalArgumentException(String.format("Could not find stream %s", streamName));
+    }
+    return kinesisStreamItem;
+  }
+
+  /**
+   * Get the configuration of the streams keyed by stream name. When a stream is configured more
+   * than once, the first configuration wins.
+   *
+   * @return immutable map of the stream configurations
+   */
+  Map<String, KinesisStreamItem> getKinesisStreamItemsByName() {
+    return kinesisStreamItemsByName;
+  }
+
+  private static Integer positiveOrNull(Integer value) {
+    return value == null || value < 1 ? null : value;
+  }
+
+  private void updateKinesisStreamItemsByName() {
+    Map<String, KinesisStreamItem> itemsByName = new LinkedHashMap<>();
+    getKinesisStreamItems().stream()
+        .filter(s -> s.getStreamName() != null)
+        .forEach(s -> itemsByName.putIfAbsent(s.getStreamName(), s));
+    kinesisStreamItemsByName = Collections.unmodifiableMap(itemsByName);
   }
 }
@@ -3,6 +3,7 @@ package io.jenkins.plugins.aws.kinesisconsumer;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
 import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
 
 /**
@@ -15,8 +16,9 @@ class KinesisAsyncClientProvider extends AsyncClientBuilder
     implements Provider<KinesisAsyncClient> {
 
   @Inject
-  KinesisAsyncClientProvider(GlobalKinesisConfiguration configuration) {
-    super(configuration);
+  KinesisAsyncClientProvider(
+      GlobalKinesisConfiguration configuration, SdkEventLoopGroup eventLoopGroup) {
+    super(configuration, eventLoopGroup);
   }
 
   @Override
@@ -4,8 +4,13 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.flogger.FluentLogger;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import software.amazon.kinesis.coordinator.Scheduler;
 
 /**
@@ -23,45 +28,163 @@ public class KinesisConsumer {
 
   private Scheduler kinesisScheduler;
   private boolean isStarted = false;
-  private final SchedulerProvider.Factory schedulerProviderFactory;
+  private final Supplier<Scheduler> schedulerSupplier;
+  private final RecordDispatchers recordDispatchers;
+  private final ExecutorProvider executorProvider;
   private final GlobalKinesisConfiguration configuration;
   private final String streamName;
+  private List<KinesisStreamItem> kinesisStreamItems = Collections.emptyList();
 
   @AssistedInject
   KinesisConsumer(
       SchedulerProvider.Factory schedulerProviderFactory,
+      RecordDispatchers recordDispatchers,
+      ExecutorProvider executorProvider,
       @Assisted GlobalKinesisConfiguration configuration,
       @Assisted String streamName) {
-    this.schedulerProviderFactory = schedulerProviderFactory;
+    this(
+        recordDispatchers,
+        executorProvider,
+        configuration,
+        streamName,
+        () -> schedulerProviderFactory.create(configuration, streamName).get());
+  }
+
+  KinesisConsumer(
+      RecordDispatchers recordDispatchers,
+      ExecutorProvider executorProvider,
+      GlobalKinesisConfiguration configuration,
+      String streamName,
+      Supplier<Scheduler> schedulerSupplier) {
+    this.recordDispatchers = recordDispatchers;
+    this.executorProvider = executorProvider;
     this.configuration = configuration;
     this.streamName = streamName;
+    this.schedulerSupplier = schedulerSupplier;
   }
 
   public void subscribe() {
     logger.atInfo().log("Launching NEW kinesis subscriber for stream %s", streamName);
-    this.kinesisScheduler = schedulerProviderFactory.create(configuration, streamName).get();
-    Thread schedulerThread = new Thread(kinesisScheduler);
-    schedulerThread.setDaemon(true);
+    this.kinesisStreamItems = resolveKinesisStreamItems();
+    kinesisStreamItems.forEach(
+        item -> recordDispatchers.start(item, configuration.getShutdownTimeoutMs()));
+    this.kinesisScheduler = schedulerSupplier.get();
+    Thread schedulerThread =
+        executorProvider
+            .threadFactory(String.format("kinesis-scheduler-%s-", streamName))
+            .newThread(kinesisScheduler);
     schedulerThread.start();
     isStarted = true;
   }
 
+  /** Outcome of the graceful shutdown of a consumer */
+  enum ShutdownOutcome {
+    /** The consumer was not running */
+    NOT_STARTED,
+    /** All the shard consumers completed their shutdown */
+    COMPLETED,
+    /** The shutdown did not complete within the timeout */
+    TIMED_OUT,
+    /** The shutdown failed or was not acknowledged by the scheduler */
+    FAILED
+  }
+
   /** Stop the scheduler threads to end consuming records from the Kinesis streams */
   public void shutdown() {
-    if (isStarted) {
-      logger.atInfo().log(
-          "Shutting down kinesis subscriber for stream '%s' (max waiting time: %s)",
-          streamName, configuration.getShutdownTimeoutMs());
-      Future<Boolean> gracefulShutdownFuture = kinesisScheduler.startGracefulShutdown();
-      try {
-        gracefulShutdownFuture.get(configuration.getShutdownTimeoutMs(), TimeUnit.MILLISECONDS);
-      } catch (Exception e) {
-        logger.atSevere().withCause(e).log(
-            "Error shutting down kinesis subscriber for stream %s", streamName);
-      } finally {
-        isStarted = false;
+    awaitShutdown(
+        startShutdown(),
+        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(configuration.getShutdownTimeoutMs()));
+  }
+
+  /**
+   * Initiate the graceful shutdown of the scheduler, without waiting for it to complete. Use {@link
+   * #awaitShutdown(Future, long)} to wait for it.
+   *
+   * @return the future completed when the scheduler has shut down
+   */
+  Future<Boolean> startShutdown() {
+    if (!isStarted) {
+      return CompletableFuture.completedFuture(true);
+    }
+    logger.atInfo().log(
+        "Shutting down kinesis subscriber for stream '%s' (max waiting time: %s)",
+        streamName, configuration.getShutdownTimeoutMs());
+    return kinesisScheduler.startGracefulShutdown();
+  }
+
+  /**
+   * Wait for a graceful shutdown initiated by {@link #startShutdown()} and stop the record
+   * dispatcher of the stream
+   *
+   * @param gracefulShutdownFuture the future returned by {@link #startShutdown()}
+   * @param deadlineNanos the {@link System#nanoTime()} after which to stop waiting
+   * @return the outcome of the shutdown
+   */
+  ShutdownOutcome awaitShutdown(Future<Boolean> gracefulShutdownFuture, long deadlineNanos) {
+    if (!isStarted) {
+      return ShutdownOutcome.NOT_STARTED;
+    }
+    ShutdownOutcome outcome = ShutdownOutcome.FAILED;
+    try {
+      if (gracefulShutdownFuture.get(remainingMs(deadlineNanos), TimeUnit.MILLISECONDS)) {
+        outcome = ShutdownOutcome.COMPLETED;
       }
+    } catch (TimeoutException e) {
+      logger.atSevere().log("Timed out shutting down kinesis subscriber for stream %s", streamName);
+      outcome = ShutdownOutcome.TIMED_OUT;
+    } catch (InterruptedException e) {
+      logger.atSevere().log(
+          "Interrupted shutting down kinesis subscriber for stream %s", streamName);
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      logger.atSevere().withCause(e).log(
+          "Error shutting down kinesis subscriber for stream %s", streamName);
+    } finally {
+      kinesisStreamItems.forEach(
+          s -> recordDispatchers.stop(s.getStreamName(), remainingMs(deadlineNanos)));
+      isStarted = false;
     }
+    return outcome;
+  }
+
+  /**
+   * Get the name of the stream this consumer reads from, used to identify the consumer
+   *
+   * @return the stream name
+   */
+  String getStreamName() {
+    return streamName;
+  }
+
+  /**
+   * Get the maximum time to wait for this consumer to shut down
+   *
+   * @return the shutdown timeout in milliseconds
+   */
+  long getShutdownTimeoutMs() {
+    return configuration.getShutdownTimeoutMs();
+  }
+
+  private static long remainingMs(long deadlineNanos) {
+    return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+  }
+
+  /**
+   * Get the configuration of the streams served by this consumer, read when subscribing
+   *
+   * @return the stream configurations
+   */
+  List<KinesisStreamItem> resolveKinesisStreamItems() {
+    return Collections.singletonList(configuration.getKinesisStreamItemsForStream(streamName));
+  }
+
+  /**
+   * Get the configuration of the streams this consumer was subscribed with
+   *
+   * @return the stream configurations, or an empty list if never subscribed
+   */
+  List<KinesisStreamItem> getKinesisStreamItems() {
+    return kinesisStreamItems;
   }
 
   @VisibleForTesting
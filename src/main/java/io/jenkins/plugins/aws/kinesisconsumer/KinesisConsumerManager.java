@@ -6,8 +6,16 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import hudson.Extension;
 import hudson.model.listeners.ItemListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manager of stream connections
@@ -20,13 +28,21 @@ public class KinesisConsumerManager extends ItemListener {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
   private GlobalKinesisConfiguration configuration;
   private KinesisConsumer.Factory kinesisConsumerFactory;
+  private MultiStreamKinesisConsumer.Factory multiStreamKinesisConsumerFactory;
+  private SdkEventLoopGroupProvider eventLoopGroupProvider;
   private final Map<String, KinesisConsumer> consumers = new ConcurrentHashMap<>();
+  private List<String> consumersSettings = Collections.emptyList();
 
   @Inject
   public KinesisConsumerManager(
-      GlobalKinesisConfiguration configuration, KinesisConsumer.Factory kinesisConsumerFactory) {
+      GlobalKinesisConfiguration configuration,
+      KinesisConsumer.Factory kinesisConsumerFactory,
+      MultiStreamKinesisConsumer.Factory multiStreamKinesisConsumerFactory,
+      SdkEventLoopGroupProvider eventLoopGroupProvider) {
     this.configuration = configuration;
     this.kinesisConsumerFactory = kinesisConsumerFactory;
+    this.multiStreamKinesisConsumerFactory = multiStreamKinesisConsumerFactory;
+    this.eventLoopGroupProvider = eventLoopGroupProvider;
   }
 
   public KinesisConsumerManager() {}
@@ -40,6 +56,9 @@ public class KinesisConsumerManager extends ItemListener {
   @Override
   public final void onBeforeShutdown() {
     shutDownAllConsumers();
+    if (eventLoopGroupProvider != null) {
+      eventLoopGroupProvider.close();
+    }
     super.onBeforeShutdown();
   }
 
@@ -52,20 +71,30 @@ public class KinesisConsumerManager extends ItemListener {
     return ItemListener.all().get(KinesisConsumerManager.class);
   }
 
-  public void startAllConsumers(GlobalKinesisConfiguration configuration) {
+  public synchronized void startAllConsumers(GlobalKinesisConfiguration configuration) {
     if (configuration != null
         && configuration.isKinesisConsumerEnabled()
         && !configuration.getKinesisStreamItems().isEmpty()) {
       logger.atInfo().log("Starting kinesis consumers for all configured streams");
-      configuration
-          .getKinesisStreamItems()
-          .forEach(
-              s ->
-                  consumers
-                      .computeIfAbsent(
-                          s.getStreamName(),
-                          stream -> kinesisConsumerFactory.create(configuration, stream))
-                      .subscribe());
+      consumersSettings = consumersSettings(configuration);
+      if (configuration.isMultiStreamScheduler()) {
+        logger.atInfo().log("Sharing a single multi-stream scheduler across all streams");
+        consumers
+            .computeIfAbsent(
+                MultiStreamKinesisConsumer.NAME,
+                name -> multiStreamKinesisConsumerFactory.create(configuration))
+            .subscribe();
+      } else {
+        configuration
+            .getKinesisStreamItems()
+            .forEach(
+                s ->
+                    consumers
+                        .computeIfAbsent(
+                            s.getStreamName(),
+                            stream -> kinesisConsumerFactory.create(configuration, stream))
+                        .subscribe());
+      }
     } else {
       logger.atInfo().log("NO kinesis consumers will be started as per configuration");
     }
@@ -76,15 +105,134 @@ public class KinesisConsumerManager extends ItemListener {
     return consumers;
   }
 
-  public void shutDownAllConsumers() {
+  public synchronized void shutDownAllConsumers() {
     logger.atInfo().log("Shutting down all kinesis consumers");
-    consumers.values().forEach(KinesisConsumer::shutdown);
+    shutDownConsumers(new ArrayList<>(consumers.values()));
     consumers.clear();
   }
 
-  public void restartAllConsumers(GlobalKinesisConfiguration configuration) {
+  public synchronized void restartAllConsumers(GlobalKinesisConfiguration configuration) {
     logger.atInfo().log("Restarting all kinesis consumers");
     shutDownAllConsumers();
     startAllConsumers(configuration);
   }
+
+  /**
+   * Align the running consumers with the configuration: consumers of new streams are started,
+   * consumers of removed streams are stopped and only the consumers whose stream configuration has
+   * changed are restarted. All the consumers are restarted when the settings shared by all the
+   * streams, i.e. region, application name or metrics settings, change. The multi-stream consumer
+   * is restarted when any stream changes.
+   *
+   * @param configuration the new configuration
+   */
+  public synchronized void reconcileConsumers(GlobalKinesisConfiguration configuration) {
+    if (!configuration.isKinesisConsumerEnabled()) {
+      shutDownAllConsumers();
+      return;
+    }
+    if (!consumersSettings(configuration).equals(consumersSettings)) {
+      restartAllConsumers(configuration);
+      return;
+    }
+
+    Map<String, KinesisStreamItem> streams = configuration.getKinesisStreamItemsByName();
+    if (configuration.isMultiStreamScheduler()) {
+      KinesisConsumer consumer = consumers.get(MultiStreamKinesisConsumer.NAME);
+      if (consumer == null
+          || !new ArrayList<>(streams.values()).equals(consumer.getKinesisStreamItems())) {
+        restartAllConsumers(configuration);
+      }
+      return;
+    }
+
+    List<KinesisConsumer> stopping = new ArrayList<>();
+    List<String> starting = new ArrayList<>();
+    for (String streamName : new ArrayList<>(consumers.keySet())) {
+      if (!streams.containsKey(streamName)) {
+        logger.atInfo().log("Stream %s removed, shutting down its consumer", streamName);
+        stopping.add(consumers.remove(streamName));
+      }
+    }
+    streams.forEach(
+        (streamName, kinesisStreamItem) -> {
+          KinesisConsumer consumer = consumers.get(streamName);
+          if (consumer != null
+              && Collections.singletonList(kinesisStreamItem)
+                  .equals(consumer.getKinesisStreamItems())) {
+            return;
+          }
+          if (consumer != null) {
+            logger.atInfo().log("Stream %s changed, restarting its consumer", streamName);
+            stopping.add(consumers.remove(streamName));
+          } else {
+            logger.atInfo().log("Stream %s added, starting its consumer", streamName);
+          }
+          starting.add(streamName);
+        });
+
+    shutDownConsumers(stopping);
+    starting.forEach(
+        streamName -> {
+          KinesisConsumer consumer = kinesisConsumerFactory.create(configuration, streamName);
+          consumers.put(streamName, consumer);
+          consumer.subscribe();
+        });
+  }
+
+  /**
+   * Shut down consumers concurrently: all the graceful shutdowns are initiated first, then awaited
+   * under a single deadline, so that the overall time is bound by the longest shutdown timeout
+   * rather than by their sum.
+   *
+   * @param toShutDown the consumers to shut down
+   * @return the outcome of the shutdown of each stream
+   */
+  @VisibleForTesting
+  Map<String, KinesisConsumer.ShutdownOutcome> shutDownConsumers(
+      List<KinesisConsumer> toShutDown) {
+    Map<String, KinesisConsumer.ShutdownOutcome> outcomes = new LinkedHashMap<>();
+    if (toShutDown.isEmpty()) {
+      return outcomes;
+    }
+    long timeoutMs =
+        toShutDown.stream().mapToLong(KinesisConsumer::getShutdownTimeoutMs).max().getAsLong();
+    long startNanos = System.nanoTime();
+    long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+    Map<KinesisConsumer, Future<Boolean>> shutdowns = new LinkedHashMap<>();
+    for (KinesisConsumer consumer : toShutDown) {
+      try {
+        shutdowns.put(consumer, consumer.startShutdown());
+      } catch (Exception e) {
+        logger.atSevere().withCause(e).log(
+            "Error initiating shutdown of kinesis subscriber for stream %s",
+            consumer.getStreamName());
+        shutdowns.put(consumer, CompletableFuture.completedFuture(false));
+      }
+    }
+    shutdowns.forEach(
+        (consumer, future) ->
+            outcomes.put(consumer.getStreamName(), consumer.awaitShutdown(future, deadlineNanos)));
+
+    logger.atInfo().log(
+        "Kinesis consumers shut down in %d ms: %s",
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+        outcomes);
+    return outcomes;
+  }
+
+  private static List<String> consumersSettings(GlobalKinesisConfiguration configuration) {
+    return Arrays.asList(
+        configuration.getRegion(),
+        configuration.getLocalEndpoint(),
+        configuration.getApplicationName(),
+        String.valueOf(configuration.isMultiStreamScheduler()),
+        configuration.getMetricsSink(),
+        configuration.getMetricsLevel(),
+        configuration.getMetricsDimensions(),
+        String.valueOf(configuration.getMetricsBufferTimeMs()),
+        configuration.getThreadType(),
+        String.valueOf(configuration.getShardConsumerThreads()));
+  }
 }
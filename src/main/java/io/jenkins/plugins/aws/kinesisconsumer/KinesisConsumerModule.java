@@ -5,6 +5,7 @@ import static com.google.inject.Scopes.SINGLETON;
 import com.google.inject.AbstractModule;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
 import hudson.Extension;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
 import software.amazon.awssdk.services.cloudwatch.CloudWatchAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
@@ -17,9 +18,12 @@ public class KinesisConsumerModule extends AbstractModule {
     install(new FactoryModuleBuilder().build(KinesisRecordProcessor.Factory.class));
     install(new FactoryModuleBuilder().build(KinesisRecordProcessorFactory.Factory.class));
     install(new FactoryModuleBuilder().build(SchedulerProvider.Factory.class));
+    install(new FactoryModuleBuilder().build(MultiStreamSchedulerProvider.Factory.class));
+    bind(SdkEventLoopGroup.class).toProvider(SdkEventLoopGroupProvider.class).in(SINGLETON);
     bind(KinesisAsyncClient.class).toProvider(KinesisAsyncClientProvider.class).in(SINGLETON);
     bind(DynamoDbAsyncClient.class).toProvider(DynamoDbAsyncClientProvider.class).in(SINGLETON);
     bind(CloudWatchAsyncClient.class).toProvider(CloudWatchAsyncClientProvider.class).in(SINGLETON);
     install(new FactoryModuleBuilder().build(KinesisConsumer.Factory.class));
+    install(new FactoryModuleBuilder().build(MultiStreamKinesisConsumer.Factory.class));
   }
 }
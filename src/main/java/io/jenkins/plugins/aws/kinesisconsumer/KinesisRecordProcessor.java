@@ -1,10 +1,21 @@
 package io.jenkins.plugins.aws.kinesisconsumer;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.flogger.FluentLogger;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
+import io.jenkins.plugins.aws.kinesisconsumer.extensions.AWSKinesisRecord;
 import io.jenkins.plugins.aws.kinesisconsumer.extensions.AWSKinesisStreamListener;
-import java.nio.charset.StandardCharsets;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.Gauge;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.Meter;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.MetricsRegistry;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.ShardLag;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.ShardLagRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import software.amazon.kinesis.exceptions.InvalidStateException;
 import software.amazon.kinesis.exceptions.ShutdownException;
 import software.amazon.kinesis.lifecycle.events.InitializationInput;
@@ -13,6 +24,8 @@ import software.amazon.kinesis.lifecycle.events.ProcessRecordsInput;
 import software.amazon.kinesis.lifecycle.events.ShardEndedInput;
 import software.amazon.kinesis.lifecycle.events.ShutdownRequestedInput;
 import software.amazon.kinesis.processor.ShardRecordProcessor;
+import software.amazon.kinesis.retrieval.KinesisClientRecord;
+import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
 
 /**
  * Implements the {@link ShardRecordProcessor} interface to process data records fetched from Amazon
@@ -28,14 +41,49 @@ public class KinesisRecordProcessor implements ShardRecordProcessor {
   }
 
   public final String streamName;
+  private final RecordDispatchers recordDispatchers;
+  private final RecordFilters recordFilters;
+  private final GlobalKinesisConfiguration configuration;
+  private String shardId;
+  private CheckpointPolicy checkpointPolicy;
+  private ShardProgress progress;
+  private Meter recordsMeter;
+  private Meter bytesMeter;
+  private Gauge millisBehindLatest;
+  private ShardLag lag;
+  private boolean lagging;
+  private Predicate<AWSKinesisRecord> filter;
 
   @AssistedInject
-  KinesisRecordProcessor(@Assisted String streamName) {
+  KinesisRecordProcessor(
+      RecordDispatchers recordDispatchers,
+      RecordFilters recordFilters,
+      GlobalKinesisConfiguration configuration,
+      @Assisted String streamName) {
+    this.recordDispatchers = recordDispatchers;
+    this.recordFilters = recordFilters;
+    this.configuration = configuration;
     this.streamName = streamName;
   }
 
   @Override
   public void initialize(InitializationInput initializationInput) {
+    this.shardId = initializationInput.shardId();
+    KinesisStreamItem kinesisStreamItem = configuration.getKinesisStreamItemsForStream(streamName);
+    this.checkpointPolicy =
+        new CheckpointPolicy(
+            streamName,
+            shardId,
+            kinesisStreamItem.getCheckpointEveryRecords(),
+            kinesisStreamItem.getCheckpointIntervalSeconds());
+    this.filter = recordFilters.get(kinesisStreamItem);
+    MetricsRegistry metrics = MetricsRegistry.get();
+    this.recordsMeter = metrics.meter("kinesis_records", "stream", streamName, "shard", shardId);
+    this.bytesMeter = metrics.meter("kinesis_bytes", "stream", streamName, "shard", shardId);
+    this.millisBehindLatest =
+        metrics.gauge("kinesis_millis_behind_latest", "stream", streamName, "shard", shardId);
+    this.lag = ShardLagRegistry.get().shard(streamName, shardId);
+    this.progress = new ShardProgress(streamName, shardId);
     logger.atInfo().log(
         "[streamName: %s] [shardId: %s] Initializing @ Sequence: %s",
         streamName, initializationInput.shardId(), initializationInput.extendedSequenceNumber());
@@ -43,43 +91,161 @@ public class KinesisRecordProcessor implements ShardRecordProcessor {
 
   /**
    * Forward each byte record of {@link ProcessRecordsInput} to the {@link AWSKinesisStreamListener}
-   * interface
+   * interface, either directly or through the {@link RecordDispatcher} of the stream when the
+   * dispatch is asynchronous
    *
    * @param processRecordsInput {@link ProcessRecordsInput} to process
    */
   @Override
   public void processRecords(ProcessRecordsInput processRecordsInput) {
-    logger.atInfo().log(
-        "[streamName: %s] Processing %s records", streamName, processRecordsInput.records().size());
+    RecordBatch batch =
+        new RecordBatch(
+            shardId,
+            processRecordsInput.records(),
+            processRecordsInput.millisBehindLatest() == null
+                ? -1
+                : processRecordsInput.millisBehindLatest());
+    Optional<RecordDispatcher> dispatcher = recordDispatchers.get(streamName);
     try {
-      processRecordsInput
-          .records()
-          .forEach(
-              consumerRecord -> {
-                byte[] byteRecord = new byte[consumerRecord.data().remaining()];
-                consumerRecord.data().get(byteRecord);
-                AWSKinesisStreamListener.fireOnReceive(
-                    streamName, new String(byteRecord, StandardCharsets.UTF_8));
-              });
+      recordMetrics(processRecordsInput);
+      if (dispatcher.isPresent()) {
+        logger.atInfo().log(
+            "[streamName: %s] Queueing %s records (average wait: %.1f ms)",
+            streamName, batch.size(), dispatcher.get().getAverageWaitMs());
+        dispatcher.get().dispatch(batch);
+      } else {
+        logger.atInfo().log("[streamName: %s] Processing %s records", streamName, batch.size());
+        deliver(streamName, batch, filter, recordDispatchers.partitionKeyExecutor(streamName));
+        progress.dispatched(batch);
+      }
+      checkpointPolicy.maybeCheckpoint(progress(), processRecordsInput.checkpointer());
+      recordLag(batch);
     } catch (Throwable t) {
       logger.atSevere().withCause(t).log(
           "[StreamName: %s] Caught throwable while processing records. Aborting.", streamName);
     }
   }
 
+  private void recordMetrics(ProcessRecordsInput processRecordsInput) {
+    long bytes = 0;
+    for (KinesisClientRecord consumerRecord : processRecordsInput.records()) {
+      bytes += consumerRecord.data().remaining();
+    }
+    recordsMeter.mark(processRecordsInput.records().size());
+    bytesMeter.mark(bytes);
+    if (processRecordsInput.millisBehindLatest() != null) {
+      millisBehindLatest.set(processRecordsInput.millisBehindLatest());
+    }
+  }
+
+  /**
+   * Record the records delivered since the last checkpoint, and log when the shard goes above or
+   * back below the lag warning threshold. The lag itself is recorded by {@link ShardProgress} once
+   * the batch is delivered.
+   */
+  private void recordLag(RecordBatch batch) {
+    lag.setRecordsSinceCheckpoint(checkpointPolicy.recordsSinceCheckpoint(progress()));
+
+    long behind = batch.millisBehindLatest();
+    Integer warningThresholdMs = configuration.getLagWarningThresholdMs();
+    boolean aboveThreshold = warningThresholdMs != null && behind > warningThresholdMs;
+    if (aboveThreshold && !lagging) {
+      logger.atWarning().log(
+          "[streamName: %s] [shardId: %s] Consumer is %d ms behind latest (threshold: %d ms)",
+          streamName, shardId, behind, warningThresholdMs);
+    } else if (!aboveThreshold && lagging) {
+      logger.atInfo().log(
+          "[streamName: %s] [shardId: %s] Consumer caught up, %d ms behind latest",
+          streamName, shardId, behind);
+    }
+    lagging = aboveThreshold;
+  }
+
+  /**
+   * Forward the records of a batch accepted by the filter of the stream to the {@link
+   * AWSKinesisStreamListener}s. The record data is not copied nor decoded, unless a listener or the
+   * filter needs the payload as a string.
+   *
+   * @param streamName the stream the records are coming from
+   * @param batch the records to deliver
+   * @param filter the predicate accepting the records to deliver
+   * @param keyExecutor the executor delivering the records, in parallel across partition keys or
+   *     sequentially
+   */
+  static void deliver(
+      String streamName,
+      RecordBatch batch,
+      Predicate<AWSKinesisRecord> filter,
+      PartitionKeyExecutor keyExecutor) {
+    deliver(
+        batch,
+        filter,
+        keyExecutor,
+        subset -> AWSKinesisStreamListener.fireOnReceiveBatch(streamName, batch.shardId(), subset));
+  }
+
+  /**
+   * Forward the records of a batch accepted by a filter to a consumer of records
+   *
+   * @param batch the records to deliver
+   * @param filter the predicate accepting the records to deliver
+   * @param keyExecutor the executor delivering the records
+   * @param listeners receives the records, in shard order for each partition key
+   */
+  @VisibleForTesting
+  static void deliver(
+      RecordBatch batch,
+      Predicate<AWSKinesisRecord> filter,
+      PartitionKeyExecutor keyExecutor,
+      Consumer<List<AWSKinesisRecord>> listeners) {
+    List<AWSKinesisRecord> records = new ArrayList<>(batch.size());
+    for (KinesisClientRecord consumerRecord : batch.records()) {
+      AWSKinesisRecord record =
+          new AWSKinesisRecord(
+              batch.shardId(),
+              consumerRecord.sequenceNumber(),
+              consumerRecord.subSequenceNumber(),
+              consumerRecord.partitionKey(),
+              consumerRecord.approximateArrivalTimestamp(),
+              consumerRecord.data());
+      if (filter.test(record)) {
+        records.add(record);
+      }
+    }
+    if (records.isEmpty()) {
+      return;
+    }
+    keyExecutor.deliver(records, listeners);
+  }
+
   @Override
   public void leaseLost(LeaseLostInput leaseLostInput) {
     logger.atInfo().log("[streamName: %s] lease lost", streamName);
+    unregister();
   }
 
+  /**
+   * Checkpoint the end of the shard once all its records have been delivered. Checkpointing the
+   * shard end hands it over to its child shards, hence it fails while records are still queued for
+   * dispatch, and the KCL retries it.
+   */
   @Override
   public void shardEnded(ShardEndedInput shardEndedInput) {
+    logger.atInfo().log("[StreamName: %s] Reached shard end checkpointing.", streamName);
+    if (!awaitDispatched()) {
+      throw new IllegalStateException(
+          String.format(
+              "[StreamName: %s] [shardId: %s] Records still queued for dispatch,"
+                  + " not checkpointing the shard end",
+              streamName, shardId));
+    }
     try {
-      logger.atInfo().log("[StreamName: %s] Reached shard end checkpointing.", streamName);
       shardEndedInput.checkpointer().checkpoint();
     } catch (ShutdownException | InvalidStateException e) {
       logger.atSevere().withCause(e).log(
           "[StreamName: %s] Exception while checkpointing at shard end. Giving up.", streamName);
+    } finally {
+      unregister();
     }
   }
 
@@ -88,11 +254,48 @@ public class KinesisRecordProcessor implements ShardRecordProcessor {
     try {
       logger.atInfo().log(
           "[StreamName: %s] Scheduler is shutting down, checkpointing.", streamName);
-      shutdownRequestedInput.checkpointer().checkpoint();
+      if (awaitDispatched()) {
+        shutdownRequestedInput.checkpointer().checkpoint();
+      } else if (progress().lastDispatched() != null) {
+        ExtendedSequenceNumber lastDispatched = progress().lastDispatched();
+        shutdownRequestedInput
+            .checkpointer()
+            .checkpoint(lastDispatched.sequenceNumber(), lastDispatched.subSequenceNumber());
+      }
     } catch (ShutdownException | InvalidStateException e) {
       logger.atSevere().withCause(e).log(
           "[StreamName: %s] Exception while checkpointing at requested shutdown. Giving up.",
           streamName);
+    } finally {
+      unregister();
+    }
+  }
+
+  /**
+   * Wait for the records of this shard still queued for asynchronous dispatch to be delivered, so
+   * that they are not lost once checkpointed.
+   *
+   * @return true if all the records received have been delivered
+   */
+  private boolean awaitDispatched() {
+    Optional<RecordDispatcher> dispatcher = recordDispatchers.get(streamName);
+    if (dispatcher.isPresent()
+        && !dispatcher.get().awaitIdle(shardId, configuration.getShutdownTimeoutMs())) {
+      logger.atWarning().log(
+          "[StreamName: %s] [shardId: %s] Records still queued for dispatch after %d ms",
+          streamName, shardId, configuration.getShutdownTimeoutMs());
+      return false;
     }
+    return true;
+  }
+
+  /** Stop reporting the lag and the metrics of the shard once it is no longer consumed */
+  private void unregister() {
+    ShardLagRegistry.get().remove(streamName, shardId);
+    MetricsRegistry.get().remove("stream", streamName, "shard", shardId);
+  }
+
+  private ShardProgress progress() {
+    return recordDispatchers.get(streamName).map(d -> d.progress(shardId)).orElse(progress);
   }
 }
@@ -4,6 +4,9 @@ import static software.amazon.awssdk.services.kinesis.model.StreamStatus.ACTIVE;
 import static software.amazon.awssdk.services.kinesis.model.StreamStatus.CREATING;
 import static software.amazon.awssdk.services.kinesis.model.StreamStatus.UPDATING;
 
+import com.google.common.flogger.FluentLogger;
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.JsonPath;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.Extension;
 import hudson.Util;
@@ -13,9 +16,12 @@ import hudson.util.FormValidation;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
 import jenkins.model.Jenkins;
 import org.apache.commons.lang3.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.verb.POST;
 import software.amazon.awssdk.regions.Region;
@@ -31,10 +37,42 @@ import software.amazon.awssdk.services.kinesis.model.StreamStatus;
  * @author Fabio Ponciroli
  */
 public class KinesisStreamItem implements Describable<KinesisStreamItem> {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
   private String streamName = null;
   private String initialPositionInStream = null;
   private String projectNameJsonPath = null;
   private Boolean triggerSCMBuild = null;
+  private Boolean asyncDispatch = null;
+  private Integer dispatchThreads = null;
+  private Integer dispatchQueueCapacity = null;
+  private String dispatchBackpressure = null;
+  private Boolean parallelPartitionKeys = null;
+  private Integer partitionKeyThreads = null;
+  private Integer checkpointEveryRecords = null;
+  private Integer checkpointIntervalSeconds = null;
+  private String retrievalMode = null;
+  private Integer pollingMaxRecords = null;
+  private Integer pollingIdleTimeMs = null;
+  private Integer pollingMaxIdleTimeMs = null;
+  private String fanOutConsumerName = null;
+  private Boolean dedupEnabled = null;
+  private String dedupIdJsonPath = null;
+  private Integer dedupMaxEntries = null;
+  private Integer dedupWindowSeconds = null;
+  private String filterJsonPath = null;
+  private String filterPayloadPrefix = null;
+  private String filterPayloadRegex = null;
+  private String filterPartitionKeyRegex = null;
+  private transient JsonPath compiledProjectNameJsonPath = null;
+
+  static final int DEFAULT_DISPATCH_THREADS = 1;
+  static final int DEFAULT_DISPATCH_QUEUE_CAPACITY = 1000;
+  static final int DEFAULT_POLLING_MAX_RECORDS = 1000;
+  static final int DEFAULT_POLLING_IDLE_TIME_MS = 1000;
+  static final int DEFAULT_POLLING_MAX_IDLE_TIME_MS = 30000;
+  static final int DEFAULT_DEDUP_MAX_ENTRIES = 10000;
+  static final int DEFAULT_DEDUP_WINDOW_SECONDS = 600;
 
   /**
    * Creates KinesisStreamItem instance.
@@ -51,6 +89,18 @@ public class KinesisStreamItem implements Describable<KinesisStreamItem> {
     this.initialPositionInStream = StringUtils.stripToNull(initialPositionInStream);
     this.projectNameJsonPath = StringUtils.stripToNull(projectNameJsonPath);
     this.triggerSCMBuild = triggerSCMBuild;
+    this.compiledProjectNameJsonPath = compile(this.projectNameJsonPath);
+  }
+
+  /**
+   * Compile the project name JSON Path when the configuration is loaded from disk, since XStream
+   * does not go through the constructor.
+   *
+   * @return this instance
+   */
+  protected Object readResolve() {
+    this.compiledProjectNameJsonPath = compile(projectNameJsonPath);
+    return this;
   }
 
   /**
@@ -99,6 +149,29 @@ public class KinesisStreamItem implements Describable<KinesisStreamItem> {
 
   public void setProjectNameJsonPath(String projectNameJsonPath) {
     this.projectNameJsonPath = projectNameJsonPath;
+    this.compiledProjectNameJsonPath = compile(projectNameJsonPath);
+  }
+
+  /**
+   * Get the project name JSON Path, compiled once when the configuration is loaded or saved
+   *
+   * @return the compiled JSON Path, or null when not set or not valid
+   */
+  public JsonPath getCompiledProjectNameJsonPath() {
+    return compiledProjectNameJsonPath;
+  }
+
+  private JsonPath compile(String jsonPath) {
+    if (jsonPath == null) {
+      return null;
+    }
+    try {
+      return JsonPath.compile(jsonPath);
+    } catch (InvalidPathException e) {
+      logger.atSevere().withCause(e).log(
+          "[streamName: %s] Invalid JSON Path '%s'", streamName, jsonPath);
+      return null;
+    }
   }
 
   public Boolean getTriggerSCMBuild() {
@@ -109,6 +182,338 @@ public class KinesisStreamItem implements Describable<KinesisStreamItem> {
     this.triggerSCMBuild = triggerSCMBuild;
   }
 
+  /**
+   * Indicates if records are handed over to a dedicated pool of dispatch threads rather than being
+   * delivered to the listeners on the shard consumer thread
+   *
+   * @return true if the dispatch is asynchronous
+   */
+  public Boolean getAsyncDispatch() {
+    return asyncDispatch != null && asyncDispatch;
+  }
+
+  @DataBoundSetter
+  public void setAsyncDispatch(Boolean asyncDispatch) {
+    this.asyncDispatch = asyncDispatch;
+  }
+
+  /**
+   * Get the number of threads delivering records to the listeners when the dispatch is
+   * asynchronous. Records of the same shard are always delivered by the same thread.
+   *
+   * @return the number of dispatch threads
+   */
+  public Integer getDispatchThreads() {
+    return dispatchThreads == null || dispatchThreads < 1
+        ? DEFAULT_DISPATCH_THREADS
+        : dispatchThreads;
+  }
+
+  @DataBoundSetter
+  public void setDispatchThreads(Integer dispatchThreads) {
+    this.dispatchThreads = dispatchThreads;
+  }
+
+  /**
+   * Get the maximum number of records waiting to be delivered when the dispatch is asynchronous
+   *
+   * @return the dispatch queue capacity
+   */
+  public Integer getDispatchQueueCapacity() {
+    return dispatchQueueCapacity == null || dispatchQueueCapacity < 1
+        ? DEFAULT_DISPATCH_QUEUE_CAPACITY
+        : dispatchQueueCapacity;
+  }
+
+  @DataBoundSetter
+  public void setDispatchQueueCapacity(Integer dispatchQueueCapacity) {
+    this.dispatchQueueCapacity = dispatchQueueCapacity;
+  }
+
+  /**
+   * Get the policy applied when the dispatch queue is full. Valid values are: BLOCK, DROP_OLDEST or
+   * SPILL.
+   *
+   * @return the backpressure policy
+   */
+  public String getDispatchBackpressure() {
+    return dispatchBackpressure == null
+        ? DispatchBackpressure.BLOCK.name()
+        : dispatchBackpressure.toUpperCase(Locale.ROOT);
+  }
+
+  @DataBoundSetter
+  public void setDispatchBackpressure(String dispatchBackpressure) {
+    this.dispatchBackpressure = StringUtils.stripToNull(dispatchBackpressure);
+  }
+
+  /**
+   * Get the number of records after which the position in the shard is checkpointed while
+   * processing records
+   *
+   * @return the number of records, 0 when disabled
+   */
+  public Integer getCheckpointEveryRecords() {
+    return checkpointEveryRecords == null ? 0 : Math.max(0, checkpointEveryRecords);
+  }
+
+  @DataBoundSetter
+  public void setCheckpointEveryRecords(Integer checkpointEveryRecords) {
+    this.checkpointEveryRecords = checkpointEveryRecords;
+  }
+
+  /**
+   * Get the number of seconds after which the position in the shard is checkpointed while
+   * processing records
+   *
+   * @return the number of seconds, 0 when disabled
+   */
+  public Integer getCheckpointIntervalSeconds() {
+    return checkpointIntervalSeconds == null ? 0 : Math.max(0, checkpointIntervalSeconds);
+  }
+
+  @DataBoundSetter
+  public void setCheckpointIntervalSeconds(Integer checkpointIntervalSeconds) {
+    this.checkpointIntervalSeconds = checkpointIntervalSeconds;
+  }
+
+  /**
+   * Get how records are retrieved from the stream. Valid values are: FAN_OUT, POLLING or
+   * ADAPTIVE_POLLING.
+   *
+   * @return the retrieval mode
+   */
+  public String getRetrievalMode() {
+    return retrievalMode == null
+        ? RetrievalMode.FAN_OUT.name()
+        : retrievalMode.toUpperCase(Locale.ROOT);
+  }
+
+  @DataBoundSetter
+  public void setRetrievalMode(String retrievalMode) {
+    this.retrievalMode = StringUtils.stripToNull(retrievalMode);
+  }
+
+  /**
+   * Get the maximum number of records fetched by each GetRecords call in POLLING mode, or while
+   * the shard is not lagging in ADAPTIVE_POLLING mode
+   *
+   * @return the maximum number of records, between 1 and 10000
+   */
+  public Integer getPollingMaxRecords() {
+    return pollingMaxRecords == null || pollingMaxRecords < 1
+        ? DEFAULT_POLLING_MAX_RECORDS
+        : Math.min(pollingMaxRecords, AdaptiveGetRecordsStrategy.MAX_RECORDS);
+  }
+
+  @DataBoundSetter
+  public void setPollingMaxRecords(Integer pollingMaxRecords) {
+    this.pollingMaxRecords = pollingMaxRecords;
+  }
+
+  /**
+   * Get the time to wait between GetRecords calls in POLLING mode, or after a call returning
+   * records in ADAPTIVE_POLLING mode
+   *
+   * @return the idle time in milliseconds
+   */
+  public Integer getPollingIdleTimeMs() {
+    return pollingIdleTimeMs == null || pollingIdleTimeMs < 0
+        ? DEFAULT_POLLING_IDLE_TIME_MS
+        : pollingIdleTimeMs;
+  }
+
+  @DataBoundSetter
+  public void setPollingIdleTimeMs(Integer pollingIdleTimeMs) {
+    this.pollingIdleTimeMs = pollingIdleTimeMs;
+  }
+
+  /**
+   * Get the maximum time to wait between GetRecords calls while the shard is empty in
+   * ADAPTIVE_POLLING mode
+   *
+   * @return the maximum idle time in milliseconds, at least the polling idle time
+   */
+  public Integer getPollingMaxIdleTimeMs() {
+    int maxIdleTimeMs =
+        pollingMaxIdleTimeMs == null || pollingMaxIdleTimeMs < 0
+            ? DEFAULT_POLLING_MAX_IDLE_TIME_MS
+            : pollingMaxIdleTimeMs;
+    return Math.max(maxIdleTimeMs, getPollingIdleTimeMs());
+  }
+
+  @DataBoundSetter
+  public void setPollingMaxIdleTimeMs(Integer pollingMaxIdleTimeMs) {
+    this.pollingMaxIdleTimeMs = pollingMaxIdleTimeMs;
+  }
+
+  /**
+   * Get the name of the enhanced fan-out consumer registered on the stream in FAN_OUT mode
+   *
+   * @return the consumer name, or null to use the application name
+   */
+  public String getFanOutConsumerName() {
+    return fanOutConsumerName;
+  }
+
+  @DataBoundSetter
+  public void setFanOutConsumerName(String fanOutConsumerName) {
+    this.fanOutConsumerName = StringUtils.stripToNull(fanOutConsumerName);
+  }
+
+  /**
+   * Indicates if the records already delivered within the deduplication window are discarded
+   *
+   * @return true if the deduplication is enabled
+   */
+  public Boolean getDedupEnabled() {
+    return dedupEnabled != null && dedupEnabled;
+  }
+
+  @DataBoundSetter
+  public void setDedupEnabled(Boolean dedupEnabled) {
+    this.dedupEnabled = dedupEnabled;
+  }
+
+  /**
+   * Get the JSON Path of the id identifying a record in its payload
+   *
+   * @return the JSON Path, or null to identify records by shard and sequence number
+   */
+  public String getDedupIdJsonPath() {
+    return dedupIdJsonPath;
+  }
+
+  @DataBoundSetter
+  public void setDedupIdJsonPath(String dedupIdJsonPath) {
+    this.dedupIdJsonPath = StringUtils.stripToNull(dedupIdJsonPath);
+  }
+
+  JsonPath getCompiledDedupIdJsonPath() {
+    return compile(dedupIdJsonPath);
+  }
+
+  /**
+   * Get the maximum number of records remembered for deduplication, the oldest being evicted first
+   *
+   * @return the maximum number of entries
+   */
+  public Integer getDedupMaxEntries() {
+    return dedupMaxEntries == null || dedupMaxEntries < 1
+        ? DEFAULT_DEDUP_MAX_ENTRIES
+        : dedupMaxEntries;
+  }
+
+  @DataBoundSetter
+  public void setDedupMaxEntries(Integer dedupMaxEntries) {
+    this.dedupMaxEntries = dedupMaxEntries;
+  }
+
+  /**
+   * Get how long a delivered record is remembered for deduplication
+   *
+   * @return the deduplication window in seconds
+   */
+  public Integer getDedupWindowSeconds() {
+    return dedupWindowSeconds == null || dedupWindowSeconds < 1
+        ? DEFAULT_DEDUP_WINDOW_SECONDS
+        : dedupWindowSeconds;
+  }
+
+  @DataBoundSetter
+  public void setDedupWindowSeconds(Integer dedupWindowSeconds) {
+    this.dedupWindowSeconds = dedupWindowSeconds;
+  }
+
+  /**
+   * Indicates if the records of a batch are delivered in parallel across partition keys, keeping
+   * the order of the records of each partition key
+   *
+   * @return true if the partition keys are processed in parallel
+   */
+  public Boolean getParallelPartitionKeys() {
+    return parallelPartitionKeys != null && parallelPartitionKeys;
+  }
+
+  @DataBoundSetter
+  public void setParallelPartitionKeys(Boolean parallelPartitionKeys) {
+    this.parallelPartitionKeys = parallelPartitionKeys;
+  }
+
+  /**
+   * Get the number of threads delivering the partition keys of a batch in parallel
+   *
+   * @return the number of threads, the number of processors by default
+   */
+  public Integer getPartitionKeyThreads() {
+    return partitionKeyThreads == null || partitionKeyThreads < 1
+        ? Runtime.getRuntime().availableProcessors()
+        : partitionKeyThreads;
+  }
+
+  @DataBoundSetter
+  public void setPartitionKeyThreads(Integer partitionKeyThreads) {
+    this.partitionKeyThreads = partitionKeyThreads;
+  }
+
+  /**
+   * Get the JSON Path query a record must match to be delivered to the listeners. A record matches
+   * when the query finds a value other than false or an empty list.
+   *
+   * @return the JSON Path, or null to deliver all the records
+   */
+  public String getFilterJsonPath() {
+    return filterJsonPath;
+  }
+
+  @DataBoundSetter
+  public void setFilterJsonPath(String filterJsonPath) {
+    this.filterJsonPath = StringUtils.stripToNull(filterJsonPath);
+  }
+
+  /**
+   * Get the prefix the raw payload of a record must start with to be delivered to the listeners
+   *
+   * @return the payload prefix, or null to deliver all the records
+   */
+  public String getFilterPayloadPrefix() {
+    return filterPayloadPrefix;
+  }
+
+  @DataBoundSetter
+  public void setFilterPayloadPrefix(String filterPayloadPrefix) {
+    this.filterPayloadPrefix = StringUtils.stripToNull(filterPayloadPrefix);
+  }
+
+  /**
+   * Get the regular expression found in the payload of the records delivered to the listeners
+   *
+   * @return the payload regular expression, or null to deliver all the records
+   */
+  public String getFilterPayloadRegex() {
+    return filterPayloadRegex;
+  }
+
+  @DataBoundSetter
+  public void setFilterPayloadRegex(String filterPayloadRegex) {
+    this.filterPayloadRegex = StringUtils.stripToNull(filterPayloadRegex);
+  }
+
+  /**
+   * Get the regular expression matching the partition key of the records delivered to the
+   * listeners
+   *
+   * @return the partition key regular expression, or null to deliver all the records
+   */
+  public String getFilterPartitionKeyRegex() {
+    return filterPartitionKeyRegex;
+  }
+
+  @DataBoundSetter
+  public void setFilterPartitionKeyRegex(String filterPartitionKeyRegex) {
+    this.filterPartitionKeyRegex = StringUtils.stripToNull(filterPartitionKeyRegex);
+  }
+
   @Extension
   public static class DescriptorImpl extends Descriptor<KinesisStreamItem> {
     @Override
@@ -158,6 +563,72 @@ public class KinesisStreamItem implements Describable<KinesisStreamItem> {
     }
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    KinesisStreamItem that = (KinesisStreamItem) o;
+    return Objects.equals(streamName, that.streamName)
+        && Objects.equals(getInitialPositionInStream(), that.getInitialPositionInStream())
+        && Objects.equals(projectNameJsonPath, that.projectNameJsonPath)
+        && Objects.equals(triggerSCMBuild, that.triggerSCMBuild)
+        && Objects.equals(getAsyncDispatch(), that.getAsyncDispatch())
+        && Objects.equals(getDispatchThreads(), that.getDispatchThreads())
+        && Objects.equals(getDispatchQueueCapacity(), that.getDispatchQueueCapacity())
+        && Objects.equals(getDispatchBackpressure(), that.getDispatchBackpressure())
+        && Objects.equals(getParallelPartitionKeys(), that.getParallelPartitionKeys())
+        && Objects.equals(partitionKeyThreads, that.partitionKeyThreads)
+        && Objects.equals(getCheckpointEveryRecords(), that.getCheckpointEveryRecords())
+        && Objects.equals(getCheckpointIntervalSeconds(), that.getCheckpointIntervalSeconds())
+        && Objects.equals(getRetrievalMode(), that.getRetrievalMode())
+        && Objects.equals(getPollingMaxRecords(), that.getPollingMaxRecords())
+        && Objects.equals(getPollingIdleTimeMs(), that.getPollingIdleTimeMs())
+        && Objects.equals(getPollingMaxIdleTimeMs(), that.getPollingMaxIdleTimeMs())
+        && Objects.equals(fanOutConsumerName, that.fanOutConsumerName)
+        && Objects.equals(getDedupEnabled(), that.getDedupEnabled())
+        && Objects.equals(dedupIdJsonPath, that.dedupIdJsonPath)
+        && Objects.equals(getDedupMaxEntries(), that.getDedupMaxEntries())
+        && Objects.equals(getDedupWindowSeconds(), that.getDedupWindowSeconds())
+        && Objects.equals(filterJsonPath, that.filterJsonPath)
+        && Objects.equals(filterPayloadPrefix, that.filterPayloadPrefix)
+        && Objects.equals(filterPayloadRegex, that.filterPayloadRegex)
+        && Objects.equals(filterPartitionKeyRegex, that.filterPartitionKeyRegex);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(
+        streamName,
+        getInitialPositionInStream(),
+        projectNameJsonPath,
+        triggerSCMBuild,
+        getAsyncDispatch(),
+        getDispatchThreads(),
+        getDispatchQueueCapacity(),
+        getDispatchBackpressure(),
+        getParallelPartitionKeys(),
+        partitionKeyThreads,
+        getCheckpointEveryRecords(),
+        getCheckpointIntervalSeconds(),
+        getRetrievalMode(),
+        getPollingMaxRecords(),
+        getPollingIdleTimeMs(),
+        getPollingMaxIdleTimeMs(),
+        fanOutConsumerName,
+        getDedupEnabled(),
+        dedupIdJsonPath,
+        getDedupMaxEntries(),
+        getDedupWindowSeconds(),
+        filterJsonPath,
+        filterPayloadPrefix,
+        filterPayloadRegex,
+        filterPartitionKeyRegex);
+  }
+
   /**
    * Get a {@link Descriptor} of {@link KinesisStreamItem} instance
    *
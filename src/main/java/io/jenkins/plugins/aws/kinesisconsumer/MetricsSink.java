@@ -0,0 +1,13 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+/**
+ * Destination of the metrics of the Kinesis schedulers
+ */
+public enum MetricsSink {
+  /** Publish the metrics to Amazon CloudWatch */
+  CLOUDWATCH,
+  /** Aggregate the metrics in memory, shown in the Jenkins management page */
+  LOCAL,
+  /** Discard the metrics */
+  NONE
+}
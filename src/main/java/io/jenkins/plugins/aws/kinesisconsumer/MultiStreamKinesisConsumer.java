@@ -0,0 +1,41 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.assistedinject.AssistedInject;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consumer of all the configured streams through a single multi-stream scheduler, sharing one lease
+ * table and one pool of workers
+ */
+class MultiStreamKinesisConsumer extends KinesisConsumer {
+  interface Factory {
+    MultiStreamKinesisConsumer create(GlobalKinesisConfiguration configuration);
+  }
+
+  /** Name identifying the multi-stream consumer among the consumers of single streams */
+  static final String NAME = "multi-stream";
+
+  private final GlobalKinesisConfiguration configuration;
+
+  @AssistedInject
+  MultiStreamKinesisConsumer(
+      MultiStreamSchedulerProvider.Factory multiStreamSchedulerProviderFactory,
+      RecordDispatchers recordDispatchers,
+      ExecutorProvider executorProvider,
+      @Assisted GlobalKinesisConfiguration configuration) {
+    super(
+        recordDispatchers,
+        executorProvider,
+        configuration,
+        NAME,
+        () -> multiStreamSchedulerProviderFactory.create(configuration).get());
+    this.configuration = configuration;
+  }
+
+  @Override
+  List<KinesisStreamItem> resolveKinesisStreamItems() {
+    return new ArrayList<>(configuration.getKinesisStreamItemsByName().values());
+  }
+}
@@ -0,0 +1,214 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.inject.Provider;
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.assistedinject.AssistedInject;
+import java.util.ArrayList;
+import java.util.List;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+import software.amazon.awssdk.services.kinesis.model.DescribeStreamSummaryRequest;
+import software.amazon.awssdk.services.kinesis.model.StreamDescriptionSummary;
+import software.amazon.kinesis.common.ConfigsBuilder;
+import software.amazon.kinesis.common.InitialPositionInStream;
+import software.amazon.kinesis.common.InitialPositionInStreamExtended;
+import software.amazon.kinesis.common.StreamConfig;
+import software.amazon.kinesis.common.StreamIdentifier;
+import software.amazon.kinesis.coordinator.Scheduler;
+import software.amazon.kinesis.processor.FormerStreamsLeasesDeletionStrategy;
+import software.amazon.kinesis.processor.MultiStreamTracker;
+import software.amazon.kinesis.processor.ShardRecordProcessor;
+import software.amazon.kinesis.processor.ShardRecordProcessorFactory;
+
+/**
+ * Provider of a Kinesis Scheduler consuming all the configured streams, with a single lease table
+ * named after the application name
+ */
+class MultiStreamSchedulerProvider implements Provider<Scheduler> {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  interface Factory {
+    MultiStreamSchedulerProvider create(GlobalKinesisConfiguration configuration);
+  }
+
+  private final KinesisAsyncClient kinesisAsyncClient;
+  private final DynamoDbAsyncClient dynamoDbAsyncClient;
+  private final CloudWatchAsyncClient cloudWatchAsyncClient;
+  private final KinesisRecordProcessor.Factory kinesisRecordProcessorFactory;
+  private final GlobalKinesisConfiguration configuration;
+  private final ExecutorProvider executorProvider;
+
+  @AssistedInject
+  MultiStreamSchedulerProvider(
+      KinesisAsyncClient kinesisAsyncClient,
+      DynamoDbAsyncClient dynamoDbAsyncClient,
+      CloudWatchAsyncClient cloudWatchAsyncClient,
+      KinesisRecordProcessor.Factory kinesisRecordProcessorFactory,
+      ExecutorProvider executorProvider,
+      @Assisted GlobalKinesisConfiguration configuration) {
+    this.kinesisAsyncClient = kinesisAsyncClient;
+    this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+    this.cloudWatchAsyncClient = cloudWatchAsyncClient;
+    this.kinesisRecordProcessorFactory = kinesisRecordProcessorFactory;
+    this.configuration = configuration;
+    this.executorProvider = executorProvider;
+  }
+
+  /**
+   * Get an instance of multi-stream Kinesis Scheduler from the provider
+   *
+   * @return a Kinesis Scheduler
+   */
+  @Override
+  public Scheduler get() {
+    List<StreamConfig> streamConfigs = streamConfigs();
+    ConfigsBuilder configsBuilder =
+        new ConfigsBuilder(
+            new StreamTracker(streamConfigs),
+            configuration.getApplicationName(),
+            kinesisAsyncClient,
+            dynamoDbAsyncClient,
+            cloudWatchAsyncClient,
+            String.format("klc-worker-%s", configuration.getApplicationName()),
+            new RecordProcessorFactory(streamConfigs));
+    return new Scheduler(
+        configsBuilder.checkpointConfig(),
+        configsBuilder
+            .coordinatorConfig()
+            .coordinatorFactory(
+                executorProvider.coordinatorFactory(MultiStreamKinesisConsumer.NAME)),
+        configsBuilder.leaseManagementConfig(),
+        configsBuilder.lifecycleConfig(),
+        SchedulerProvider.getMetricsConfig(configsBuilder, configuration),
+        SchedulerProvider.getProcessorConfig(configsBuilder),
+        configsBuilder.retrievalConfig());
+  }
+
+  /**
+   * Resolve the identifier of each configured stream. A multi-stream identifier needs the account
+   * and the creation time of the stream, which are read once here rather than each time the
+   * scheduler syncs the list of streams.
+   */
+  private List<StreamConfig> streamConfigs() {
+    List<StreamConfig> streamConfigs = new ArrayList<>();
+    for (KinesisStreamItem kinesisStreamItem :
+        configuration.getKinesisStreamItemsByName().values()) {
+      String streamName = kinesisStreamItem.getStreamName();
+      warnIgnoredSettings(kinesisStreamItem);
+      try {
+        StreamDescriptionSummary summary =
+            kinesisAsyncClient
+                .describeStreamSummary(
+                    DescribeStreamSummaryRequest.builder().streamName(streamName).build())
+                .get()
+                .streamDescriptionSummary();
+        String streamIdentifier =
+            String.format(
+                "%s:%s:%d",
+                accountId(summary.streamARN()),
+                streamName,
+                summary.streamCreationTimestamp().getEpochSecond());
+        streamConfigs.add(
+            new StreamConfig(
+                StreamIdentifier.multiStreamInstance(streamIdentifier),
+                InitialPositionInStreamExtended.newInitialPosition(
+                    InitialPositionInStream.valueOf(
+                        kinesisStreamItem.getInitialPositionInStream()))));
+        logger.atInfo().log("[streamName: %s] Added to multi-stream scheduler", streamName);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while describing stream " + streamName, e);
+      } catch (Exception e) {
+        logger.atSevere().withCause(e).log(
+            "[streamName: %s] Could not describe stream, it will not be consumed", streamName);
+      }
+    }
+    return streamConfigs;
+  }
+
+  /**
+   * Warn about the retrieval settings of a stream not applied by the multi-stream scheduler, which
+   * retrieves the records of all the streams with enhanced fan-out, registered under the
+   * application name
+   */
+  private static void warnIgnoredSettings(KinesisStreamItem kinesisStreamItem) {
+    List<String> ignored = new ArrayList<>();
+    if (!RetrievalMode.FAN_OUT.name().equals(kinesisStreamItem.getRetrievalMode())) {
+      ignored.add("retrievalMode=" + kinesisStreamItem.getRetrievalMode());
+    }
+    if (kinesisStreamItem.getPollingMaxRecords() != KinesisStreamItem.DEFAULT_POLLING_MAX_RECORDS) {
+      ignored.add("pollingMaxRecords");
+    }
+    if (kinesisStreamItem.getPollingIdleTimeMs()
+        != KinesisStreamItem.DEFAULT_POLLING_IDLE_TIME_MS) {
+      ignored.add("pollingIdleTimeMs");
+    }
+    if (kinesisStreamItem.getPollingMaxIdleTimeMs()
+        != KinesisStreamItem.DEFAULT_POLLING_MAX_IDLE_TIME_MS) {
+      ignored.add("pollingMaxIdleTimeMs");
+    }
+    if (kinesisStreamItem.getFanOutConsumerName() != null) {
+      ignored.add("fanOutConsumerName");
+    }
+    if (!ignored.isEmpty()) {
+      logger.atWarning().log(
+          "[streamName: %s] Settings ignored by the multi-stream scheduler, records are retrieved"
+              + " with enhanced fan-out: %s",
+          kinesisStreamItem.getStreamName(), String.join(", ", ignored));
+    }
+  }
+
+  /** Extract the account from a stream ARN: arn:aws:kinesis:region:account:stream/name */
+  private static String accountId(String streamArn) {
+    return streamArn.split(":")[4];
+  }
+
+  private static class StreamTracker implements MultiStreamTracker {
+    private final List<StreamConfig> streamConfigs;
+
+    StreamTracker(List<StreamConfig> streamConfigs) {
+      this.streamConfigs = streamConfigs;
+    }
+
+    @Override
+    public List<StreamConfig> streamConfigList() {
+      return streamConfigs;
+    }
+
+    @Override
+    public FormerStreamsLeasesDeletionStrategy formerStreamsLeasesDeletionStrategy() {
+      return new FormerStreamsLeasesDeletionStrategy.NoLeaseDeletionStrategy();
+    }
+  }
+
+  private class RecordProcessorFactory implements ShardRecordProcessorFactory {
+    private final List<StreamConfig> streamConfigs;
+
+    RecordProcessorFactory(List<StreamConfig> streamConfigs) {
+      this.streamConfigs = streamConfigs;
+    }
+
+    /**
+     * The scheduler passes the stream identifier of the shard when it tracks multiple streams.
+     * Without it, the shard can only belong to the stream tracked when there is a single one.
+     */
+    @Override
+    public ShardRecordProcessor shardRecordProcessor() {
+      if (streamConfigs.size() != 1) {
+        throw new IllegalStateException(
+            String.format(
+                "Cannot tell the stream of a shard among the %d streams of the multi-stream"
+                    + " scheduler",
+                streamConfigs.size()));
+      }
+      return shardRecordProcessor(streamConfigs.get(0).streamIdentifier());
+    }
+
+    @Override
+    public ShardRecordProcessor shardRecordProcessor(StreamIdentifier streamIdentifier) {
+      return kinesisRecordProcessorFactory.create(streamIdentifier.streamName());
+    }
+  }
+}
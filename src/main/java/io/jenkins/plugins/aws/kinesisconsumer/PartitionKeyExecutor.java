@@ -0,0 +1,123 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.Uninterruptibles;
+import io.jenkins.plugins.aws.kinesisconsumer.extensions.AWSKinesisRecord;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+
+/**
+ * Delivers the records of a batch in parallel across partition keys, keeping the order of the
+ * records of each partition key.
+ *
+ * <p>The records are split into stripes by hash of their partition key: each stripe is delivered
+ * by one thread, the calling thread taking the first one, and the batch completes once all its
+ * stripes are delivered, even if the calling thread is interrupted meanwhile. The position of a
+ * shard is therefore never checkpointed past a record still being delivered.
+ */
+class PartitionKeyExecutor {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final PartitionKeyExecutor SEQUENTIAL = new PartitionKeyExecutor("", 1);
+
+  private final String streamName;
+  private final int stripes;
+  private final ExecutorService executor;
+
+  /**
+   * Creates PartitionKeyExecutor instance.
+   *
+   * @param streamName the stream name, used to name the threads
+   * @param stripes number of partition key stripes delivered in parallel
+   */
+  PartitionKeyExecutor(String streamName, int stripes) {
+    this(
+        streamName,
+        stripes,
+        ExecutorProvider.platformThreadFactory(String.format("kinesis-keys-%s-", streamName)));
+  }
+
+  /**
+   * Creates PartitionKeyExecutor instance.
+   *
+   * @param streamName the stream name
+   * @param stripes number of partition key stripes delivered in parallel
+   * @param threadFactory creates the threads delivering the stripes
+   */
+  PartitionKeyExecutor(String streamName, int stripes, ThreadFactory threadFactory) {
+    this.streamName = streamName;
+    this.stripes = Math.max(1, stripes);
+    this.executor =
+        this.stripes == 1 ? null : Executors.newFixedThreadPool(this.stripes - 1, threadFactory);
+  }
+
+  /**
+   * Get the executor delivering the records in the calling thread, in shard order
+   *
+   * @return the sequential executor
+   */
+  static PartitionKeyExecutor sequential() {
+    return SEQUENTIAL;
+  }
+
+  /**
+   * Deliver records, waiting for all of them to be delivered. An interruption does not stop the
+   * wait, the interrupt status of the calling thread is restored once all the records are
+   * delivered.
+   *
+   * @param records the records, in shard order
+   * @param delivery delivers a subset of the records, in the same order
+   */
+  void deliver(List<AWSKinesisRecord> records, Consumer<List<AWSKinesisRecord>> delivery) {
+    if (executor == null || records.size() < 2) {
+      delivery.accept(records);
+      return;
+    }
+    List<List<AWSKinesisRecord>> split = split(records);
+    List<Future<?>> futures = new ArrayList<>(split.size());
+    for (List<AWSKinesisRecord> stripe : split.subList(1, split.size())) {
+      try {
+        futures.add(executor.submit(() -> delivery.accept(stripe)));
+      } catch (RejectedExecutionException e) {
+        delivery.accept(stripe);
+      }
+    }
+    delivery.accept(split.get(0));
+    for (Future<?> future : futures) {
+      try {
+        Uninterruptibles.getUninterruptibly(future);
+      } catch (ExecutionException e) {
+        logger.atSevere().withCause(e.getCause()).log(
+            "[streamName: %s] Error delivering records in parallel", streamName);
+      }
+    }
+  }
+
+  /** Split the records into the non-empty stripes of their partition keys */
+  private List<List<AWSKinesisRecord>> split(List<AWSKinesisRecord> records) {
+    List<List<AWSKinesisRecord>> byStripe = new ArrayList<>(stripes);
+    for (int i = 0; i < stripes; i++) {
+      byStripe.add(new ArrayList<>());
+    }
+    for (AWSKinesisRecord record : records) {
+      String partitionKey = record.getPartitionKey();
+      int stripe = partitionKey == null ? 0 : Math.floorMod(partitionKey.hashCode(), stripes);
+      byStripe.get(stripe).add(record);
+    }
+    byStripe.removeIf(List::isEmpty);
+    return byStripe;
+  }
+
+  /** Stop the threads, once the records being delivered are delivered */
+  void shutdown() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+}
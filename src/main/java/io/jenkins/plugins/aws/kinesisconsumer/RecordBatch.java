@@ -0,0 +1,132 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import software.amazon.kinesis.retrieval.KinesisClientRecord;
+
+/**
+ * Records received from a shard by a single {@link KinesisRecordProcessor#processRecords} call
+ */
+class RecordBatch {
+  private final String shardId;
+  private final List<KinesisClientRecord> records;
+  private final long millisBehindLatest;
+  private final long createdNanos;
+
+  RecordBatch(String shardId, List<KinesisClientRecord> records) {
+    this(shardId, records, -1);
+  }
+
+  /**
+   * @param shardId the shard the records are coming from
+   * @param records the records received
+   * @param millisBehindLatest how far the records are behind the tip of the stream, -1 if unknown
+   */
+  RecordBatch(String shardId, List<KinesisClientRecord> records, long millisBehindLatest) {
+    this(shardId, records, millisBehindLatest, System.nanoTime());
+  }
+
+  private RecordBatch(
+      String shardId,
+      List<KinesisClientRecord> records,
+      long millisBehindLatest,
+      long createdNanos) {
+    this.shardId = shardId;
+    this.records = Collections.unmodifiableList(records);
+    this.millisBehindLatest = millisBehindLatest;
+    this.createdNanos = createdNanos;
+  }
+
+  String shardId() {
+    return shardId;
+  }
+
+  List<KinesisClientRecord> records() {
+    return records;
+  }
+
+  int size() {
+    return records.size();
+  }
+
+  /**
+   * Get how far the records were behind the tip of the stream when they were received
+   *
+   * @return the lag in milliseconds, or -1 if unknown
+   */
+  long millisBehindLatest() {
+    return millisBehindLatest;
+  }
+
+  /**
+   * Nanoseconds elapsed since this batch was received from the shard
+   *
+   * @return elapsed time in nanoseconds
+   */
+  long elapsedNanos() {
+    return System.nanoTime() - createdNanos;
+  }
+
+  /**
+   * Serialize this batch, for example to spill it to disk
+   *
+   * @param out the output to write to
+   * @throws IOException if the batch could not be written
+   */
+  void writeTo(DataOutput out) throws IOException {
+    out.writeUTF(shardId);
+    out.writeLong(millisBehindLatest);
+    out.writeLong(createdNanos);
+    out.writeInt(records.size());
+    for (KinesisClientRecord record : records) {
+      out.writeUTF(record.sequenceNumber());
+      out.writeLong(record.subSequenceNumber());
+      out.writeUTF(record.partitionKey());
+      Instant arrival = record.approximateArrivalTimestamp();
+      out.writeLong(arrival == null ? -1L : arrival.toEpochMilli());
+      ByteBuffer data = record.data().duplicate();
+      byte[] bytes = new byte[data.remaining()];
+      data.get(bytes);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  /**
+   * Deserialize a batch written by {@link #writeTo(DataOutput)}
+   *
+   * @param in the input to read from
+   * @return the batch
+   * @throws IOException if the batch could not be read
+   */
+  static RecordBatch readFrom(DataInput in) throws IOException {
+    String shardId = in.readUTF();
+    long millisBehindLatest = in.readLong();
+    long createdNanos = in.readLong();
+    int size = in.readInt();
+    List<KinesisClientRecord> records = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      String sequenceNumber = in.readUTF();
+      long subSequenceNumber = in.readLong();
+      String partitionKey = in.readUTF();
+      long arrival = in.readLong();
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      records.add(
+          KinesisClientRecord.builder()
+              .sequenceNumber(sequenceNumber)
+              .subSequenceNumber(subSequenceNumber)
+              .partitionKey(partitionKey)
+              .approximateArrivalTimestamp(arrival < 0 ? null : Instant.ofEpochMilli(arrival))
+              .data(ByteBuffer.wrap(bytes).asReadOnlyBuffer())
+              .build());
+    }
+    return new RecordBatch(shardId, records, millisBehindLatest, createdNanos);
+  }
+}
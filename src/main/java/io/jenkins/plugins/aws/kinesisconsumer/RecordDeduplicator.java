@@ -0,0 +1,211 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import com.google.common.flogger.FluentLogger;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.JsonPathException;
+import com.jayway.jsonpath.Option;
+import com.jayway.jsonpath.ParseContext;
+import com.jayway.jsonpath.spi.json.JsonSmartJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JsonSmartMappingProvider;
+import io.jenkins.plugins.aws.kinesisconsumer.extensions.AWSKinesisRecord;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.Counter;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.MetricsRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Bounded, time windowed cache of the records already delivered for a stream, to discard the
+ * records the Kinesis Client Library delivers again after a lease is stolen or a consumer restarts.
+ *
+ * <p>Records are identified by a 64 bits hash of their shard and sequence number, or of an id
+ * extracted from their payload. Hashes are kept in an open addressing table of primitive longs, and
+ * evicted in insertion order once the configured number of entries is reached, so that memory
+ * stays bounded whatever the size of the records.
+ */
+class RecordDeduplicator implements Predicate<AWSKinesisRecord> {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final ParseContext PARSE_CONTEXT =
+      JsonPath.using(
+          Configuration.builder()
+              .jsonProvider(new JsonSmartJsonProvider())
+              .mappingProvider(new JsonSmartMappingProvider())
+              .options(Option.SUPPRESS_EXCEPTIONS)
+              .build());
+
+  private final String streamName;
+  private final JsonPath keyJsonPath;
+  private final long windowNanos;
+  private final Counter hits;
+  private final Counter misses;
+
+  private final long[] hashes;
+  private final long[] seenAt;
+  private final int mask;
+  private final long[] ringHashes;
+  private final long[] ringSeenAt;
+  private int ringHead;
+  private int size;
+
+  /**
+   * Creates RecordDeduplicator instance.
+   *
+   * @param streamName the stream name
+   * @param keyJsonPath JSON Path of the record id in the payload, or null to use the shard and
+   *     sequence number
+   * @param capacity maximum number of records remembered
+   * @param windowSeconds how long a record is remembered
+   */
+  RecordDeduplicator(String streamName, JsonPath keyJsonPath, int capacity, int windowSeconds) {
+    this.streamName = streamName;
+    this.keyJsonPath = keyJsonPath;
+    this.windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+    this.hits = MetricsRegistry.get().counter("kinesis_dedup_hits", "stream", streamName);
+    this.misses = MetricsRegistry.get().counter("kinesis_dedup_misses", "stream", streamName);
+    int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+    this.hashes = new long[tableSize];
+    this.seenAt = new long[tableSize];
+    this.mask = tableSize - 1;
+    this.ringHashes = new long[capacity];
+    this.ringSeenAt = new long[capacity];
+  }
+
+  /**
+   * Check whether a record is delivered for the first time within the window, remembering it. A
+   * record whose payload is not valid JSON is never considered a duplicate.
+   *
+   * @param record the record
+   * @return true if the record has not been seen yet and must be delivered
+   */
+  @Override
+  public boolean test(AWSKinesisRecord record) {
+    long hash;
+    if (keyJsonPath == null) {
+      hash = hash(record.getShardId(), record.getSequenceNumber(), record.getSubSequenceNumber());
+    } else {
+      Object id = readId(record);
+      if (id == null) {
+        misses.inc();
+        return true;
+      }
+      hash = hash(String.valueOf(id), null, 0);
+    }
+    if (seen(hash, System.nanoTime())) {
+      hits.inc();
+      return false;
+    }
+    misses.inc();
+    return true;
+  }
+
+  private Object readId(AWSKinesisRecord record) {
+    try {
+      return PARSE_CONTEXT.parse(record.getJsonPayload()).read(keyJsonPath);
+    } catch (JsonPathException e) {
+      logger.atWarning().atMostEvery(1, TimeUnit.MINUTES).withCause(e).log(
+          "[streamName: %s] Could not read the id of record %s, delivering it",
+          streamName, record.getSequenceNumber());
+      return null;
+    }
+  }
+
+  /**
+   * Check whether a hash has been seen within the window, and remember it otherwise
+   *
+   * @param hash the record hash
+   * @param now the current {@link System#nanoTime()}
+   * @return true if the hash has been seen within the window
+   */
+  synchronized boolean seen(long hash, long now) {
+    hash = hash == 0 ? 1 : hash;
+    int slot = slot(hash);
+    if (hashes[slot] == hash) {
+      if (now - seenAt[slot] < windowNanos) {
+        return true;
+      }
+      remove(slot);
+    }
+    evict(ringHashes[ringHead], ringSeenAt[ringHead]);
+    slot = slot(hash);
+    hashes[slot] = hash;
+    seenAt[slot] = now;
+    size++;
+    ringHashes[ringHead] = hash;
+    ringSeenAt[ringHead] = now;
+    ringHead = (ringHead + 1) % ringHashes.length;
+    return false;
+  }
+
+  /** Find the slot holding a hash, or the empty slot where to insert it */
+  private int slot(long hash) {
+    int slot = (int) hash & mask;
+    while (hashes[slot] != 0 && hashes[slot] != hash) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /**
+   * Remove the entry of the ring slot about to be reused, unless it has expired and been seen again
+   * since, in which case it owns a more recent ring slot
+   */
+  private void evict(long hash, long ringSeenAt) {
+    if (hash == 0) {
+      return;
+    }
+    int slot = slot(hash);
+    if (hashes[slot] == hash && seenAt[slot] == ringSeenAt) {
+      remove(slot);
+    }
+  }
+
+  private void remove(int slot) {
+    delete(slot);
+    size--;
+  }
+
+  /** Delete a slot, shifting back the following entries of the probe sequence */
+  private void delete(int slot) {
+    int hole = slot;
+    int next = (hole + 1) & mask;
+    while (hashes[next] != 0) {
+      int home = (int) hashes[next] & mask;
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        hashes[hole] = hashes[next];
+        seenAt[hole] = seenAt[next];
+        hole = next;
+      }
+      next = (next + 1) & mask;
+    }
+    hashes[hole] = 0;
+    seenAt[hole] = 0;
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  /** 64 bits FNV-1a hash of the key parts, with a final avalanche to spread the low bits */
+  static long hash(String first, String second, long third) {
+    long h = 0xcbf29ce484222325L;
+    h = mix(h, first);
+    h = (h ^ '/') * 0x100000001b3L;
+    h = mix(h, second);
+    h = (h ^ third) * 0x100000001b3L;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  private static long mix(long h, String s) {
+    if (s != null) {
+      for (int i = 0; i < s.length(); i++) {
+        h = (h ^ s.charAt(i)) * 0x100000001b3L;
+      }
+    }
+    return h;
+  }
+}
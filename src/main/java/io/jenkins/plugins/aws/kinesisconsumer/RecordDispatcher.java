@@ -0,0 +1,541 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import com.google.common.flogger.FluentLogger;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.Counter;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.Gauge;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.Histogram;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.MetricsRegistry;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous dispatch stage between the shard consumers of a stream and the listeners.
+ *
+ * <p>Batches are distributed over a fixed number of workers, each draining its own bounded queue.
+ * All the batches of a shard are always handled by the same worker, which preserves the ordering
+ * within the shard. When a queue is full the configured {@link DispatchBackpressure} policy is
+ * applied. With {@link DispatchBackpressure#DROP_OLDEST}, only the batches of the shard submitting
+ * the new batch are dropped, so that the shards sharing its worker never lose records.
+ *
+ * <p>With {@link DispatchBackpressure#SPILL}, the spill files left by a previous run are deleted on
+ * start: the records they hold were never checkpointed, and are fetched again from the stream.
+ *
+ * <p>The queue depth, the time batches wait in the queue and the records dropped or spilled are
+ * exposed as the <i>kinesis_dispatch_*</i> metrics of the stream.
+ */
+class RecordDispatcher {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private final String streamName;
+  private final DispatchBackpressure backpressure;
+  private final Consumer<RecordBatch> handler;
+  private final Worker[] workers;
+  private final Map<String, ShardProgress> progressByShard = new ConcurrentHashMap<>();
+
+  private final AtomicLong depth = new AtomicLong();
+  private final Gauge depthGauge;
+  private final Histogram waitMs;
+  private final Counter droppedRecords;
+  private final Counter spilledRecords;
+
+  /**
+   * @param streamName the stream the records are coming from
+   * @param threads number of workers
+   * @param queueCapacity maximum number of queued records, split evenly across the workers
+   * @param backpressure policy applied when a worker queue is full
+   * @param spillDir directory used to overflow the queues when the policy is {@link
+   *     DispatchBackpressure#SPILL}
+   * @param handler delivers a batch of records to the listeners
+   */
+  RecordDispatcher(
+      String streamName,
+      int threads,
+      int queueCapacity,
+      DispatchBackpressure backpressure,
+      File spillDir,
+      Consumer<RecordBatch> handler) {
+    this(
+        streamName,
+        threads,
+        queueCapacity,
+        backpressure,
+        spillDir,
+        ExecutorProvider.platformThreadFactory(String.format("kinesis-dispatch-%s-", streamName)),
+        handler);
+  }
+
+  /**
+   * @param streamName the stream the records are coming from
+   * @param threads number of workers
+   * @param queueCapacity maximum number of queued records, split evenly across the workers
+   * @param backpressure policy applied when a worker queue is full
+   * @param spillDir directory used to overflow the queues when the policy is {@link
+   *     DispatchBackpressure#SPILL}
+   * @param threadFactory creates the worker threads
+   * @param handler delivers a batch of records to the listeners
+   */
+  RecordDispatcher(
+      String streamName,
+      int threads,
+      int queueCapacity,
+      DispatchBackpressure backpressure,
+      File spillDir,
+      ThreadFactory threadFactory,
+      Consumer<RecordBatch> handler) {
+    this.streamName = streamName;
+    this.backpressure = backpressure;
+    this.handler = handler;
+    MetricsRegistry metrics = MetricsRegistry.get();
+    this.depthGauge = metrics.gauge("kinesis_dispatch_queue_depth", "stream", streamName);
+    this.waitMs = metrics.histogram("kinesis_dispatch_wait_ms", "stream", streamName);
+    this.droppedRecords = metrics.counter("kinesis_dispatch_dropped_records", "stream", streamName);
+    this.spilledRecords = metrics.counter("kinesis_dispatch_spilled_records", "stream", streamName);
+    this.workers = new Worker[Math.max(1, threads)];
+    int workerCapacity = Math.max(1, queueCapacity / workers.length);
+    for (int i = 0; i < workers.length; i++) {
+      File spillFile =
+          backpressure == DispatchBackpressure.SPILL ? new File(spillDir, i + ".spill") : null;
+      workers[i] = new Worker(i, workerCapacity, spillFile, threadFactory);
+    }
+  }
+
+  void start() {
+    logger.atInfo().log(
+        "[streamName: %s] Starting %d dispatch workers (backpressure: %s)",
+        streamName, workers.length, backpressure);
+    for (Worker worker : workers) {
+      worker.thread.start();
+    }
+  }
+
+  /**
+   * Queue a batch for the listeners, applying the backpressure policy if the queue is full. An
+   * empty batch is not queued, it only reports the lag of its shard when nothing is left to deliver.
+   *
+   * @param batch the batch of records received from a shard
+   */
+  void dispatch(RecordBatch batch) {
+    if (batch.size() > 0) {
+      workerFor(batch.shardId()).enqueue(batch);
+    } else if (awaitIdle(batch.shardId(), 0)) {
+      progress(batch.shardId()).dispatched(batch);
+    }
+  }
+
+  /**
+   * Wait until all the batches queued for a shard have been delivered to the listeners. The batches
+   * of the other shards handled by the same worker are not waited for.
+   *
+   * @param shardId the shard
+   * @param timeoutMs maximum time to wait
+   * @return true if the batches of the shard were delivered, false if the timeout expired
+   */
+  boolean awaitIdle(String shardId, long timeoutMs) {
+    return workerFor(shardId).awaitIdle(shardId, timeoutMs);
+  }
+
+  /**
+   * Get the progress of the delivery of the records of a shard
+   *
+   * @param shardId the shard
+   * @return the progress of the shard
+   */
+  ShardProgress progress(String shardId) {
+    return progressByShard.computeIfAbsent(shardId, s -> new ShardProgress(streamName, s));
+  }
+
+  /**
+   * Stop accepting records and wait for the queued ones to be delivered
+   *
+   * @param timeoutMs maximum time to wait for the workers to drain their queues
+   */
+  void shutdown(long timeoutMs) {
+    logger.atInfo().log("[streamName: %s] Shutting down dispatch workers", streamName);
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    for (Worker worker : workers) {
+      worker.stop();
+    }
+    for (Worker worker : workers) {
+      try {
+        worker.thread.join(
+            Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (worker.thread.isAlive()) {
+        logger.atWarning().log(
+            "[streamName: %s] Dispatch worker %d did not drain in time, %d records left",
+            streamName, worker.index, worker.depth());
+        worker.thread.interrupt();
+      }
+    }
+  }
+
+  /**
+   * Get the number of records waiting to be delivered, including the ones spilled to disk
+   *
+   * @return number of queued records
+   */
+  long getQueueDepth() {
+    return depth.get();
+  }
+
+  /**
+   * Get the average time batches waited in the queue before being delivered
+   *
+   * @return average wait time in milliseconds
+   */
+  double getAverageWaitMs() {
+    return waitMs.getMean();
+  }
+
+  /**
+   * Get the maximum time a batch waited in the queue before being delivered
+   *
+   * @return maximum wait time in milliseconds
+   */
+  long getMaxWaitMs() {
+    return (long) waitMs.getMax();
+  }
+
+  long getDroppedRecords() {
+    return droppedRecords.get();
+  }
+
+  long getSpilledRecords() {
+    return spilledRecords.get();
+  }
+
+  private void updateDepth(long delta) {
+    depthGauge.set(depth.addAndGet(delta));
+  }
+
+  private Worker workerFor(String shardId) {
+    return workers[Math.floorMod(shardId.hashCode(), workers.length)];
+  }
+
+  private class Worker implements Runnable {
+    private final int index;
+    private final int capacity;
+    private final Thread thread;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition idle = lock.newCondition();
+    private final Deque<RecordBatch> queue = new ArrayDeque<>();
+    private final SpillFile spill;
+    /** Batches of each shard queued, spilled or being delivered */
+    private final Map<String, Integer> pendingBatches = new HashMap<>();
+    /** Batches of each shard spilled to disk and not read back yet */
+    private final Map<String, Integer> spilledBatches = new HashMap<>();
+    private int queuedRecords;
+    private boolean running = true;
+
+    Worker(int index, int capacity, File spillFile, ThreadFactory threadFactory) {
+      this.index = index;
+      this.capacity = capacity;
+      this.spill = spillFile == null ? null : new SpillFile(spillFile);
+      this.thread = threadFactory.newThread(this);
+    }
+
+    void enqueue(RecordBatch batch) {
+      lock.lock();
+      try {
+        if (spill != null && spill.hasPending()) {
+          // Keep the shard ordering: once spilling, everything goes through the spill file
+          spill(batch);
+          return;
+        }
+        switch (backpressure) {
+          case BLOCK:
+            while (!fits(batch) && running) {
+              notFull.await();
+            }
+            break;
+          case DROP_OLDEST:
+            if (!dropOldest(batch)) {
+              drop(batch);
+              return;
+            }
+            break;
+          case SPILL:
+            if (!fits(batch)) {
+              spill(batch);
+              return;
+            }
+            break;
+        }
+        queue.addLast(batch);
+        queuedRecords += batch.size();
+        updateDepth(batch.size());
+        pendingBatches.merge(batch.shardId(), 1, Integer::sum);
+        notEmpty.signal();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        logger.atSevere().log(
+            "[streamName: %s] [shardId: %s] Interrupted while waiting for the dispatch queue,"
+                + " %d records not delivered",
+            streamName, batch.shardId(), batch.size());
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    boolean awaitIdle(String shardId, long timeoutMs) {
+      long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+      lock.lock();
+      try {
+        while (pendingBatches.containsKey(shardId)) {
+          if (nanos <= 0) {
+            return false;
+          }
+          nanos = idle.awaitNanos(nanos);
+        }
+        return true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void stop() {
+      lock.lock();
+      try {
+        running = false;
+        notEmpty.signalAll();
+        notFull.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    long depth() {
+      lock.lock();
+      try {
+        return queuedRecords + (spill == null ? 0 : spill.pendingRecords());
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        RecordBatch batch;
+        lock.lock();
+        try {
+          while (queue.isEmpty() && (spill == null || !spill.hasPending()) && running) {
+            notEmpty.await();
+          }
+          if (!queue.isEmpty()) {
+            batch = queue.pollFirst();
+            queuedRecords -= batch.size();
+            notFull.signalAll();
+          } else if (spill != null && spill.hasPending()) {
+            batch = spill.next();
+            release(spilledBatches, batch.shardId());
+          } else {
+            return;
+          }
+          updateDepth(-batch.size());
+        } catch (InterruptedException e) {
+          return;
+        } catch (IOException e) {
+          logger.atSevere().withCause(e).log(
+              "[streamName: %s] Could not read spilled records, discarding them", streamName);
+          discardSpill();
+          continue;
+        } finally {
+          lock.unlock();
+        }
+
+        try {
+          waitMs.record(batch.elapsedNanos() / 1e6);
+          handler.accept(batch);
+          progress(batch.shardId()).dispatched(batch);
+        } catch (Throwable t) {
+          logger.atSevere().withCause(t).log(
+              "[streamName: %s] [shardId: %s] Caught throwable while dispatching records.",
+              streamName, batch.shardId());
+        } finally {
+          lock.lock();
+          try {
+            release(pendingBatches, batch.shardId());
+          } finally {
+            lock.unlock();
+          }
+        }
+      }
+    }
+
+    /** Count a batch of a shard out, waking up the threads waiting for the shard once it is idle */
+    private void release(Map<String, Integer> batches, String shardId) {
+      if (batches.merge(shardId, -1, Integer::sum) == 0) {
+        batches.remove(shardId);
+        idle.signalAll();
+      }
+    }
+
+    /** Forget the spilled batches that could not be read back */
+    private void discardSpill() {
+      updateDepth(-spill.pendingRecords());
+      spilledBatches.forEach(
+          (shardId, batches) -> {
+            for (int i = 0; i < batches; i++) {
+              release(pendingBatches, shardId);
+            }
+          });
+      spilledBatches.clear();
+      spill.reset();
+    }
+
+    private boolean fits(RecordBatch batch) {
+      return queue.isEmpty() || queuedRecords + batch.size() <= capacity;
+    }
+
+    /**
+     * Drop the oldest queued batches of the shard submitting a batch until the batch fits. The
+     * batches of the other shards handled by this worker are left untouched, as dropping them would
+     * let those shards checkpoint past records never delivered.
+     *
+     * @return true if the batch fits, false if the shard has no batch left to drop
+     */
+    private boolean dropOldest(RecordBatch batch) {
+      Iterator<RecordBatch> it = queue.iterator();
+      while (!fits(batch) && it.hasNext()) {
+        RecordBatch queued = it.next();
+        if (queued.shardId().equals(batch.shardId())) {
+          it.remove();
+          queuedRecords -= queued.size();
+          updateDepth(-queued.size());
+          release(pendingBatches, queued.shardId());
+          notFull.signalAll();
+          drop(queued);
+        }
+      }
+      return fits(batch);
+    }
+
+    private void drop(RecordBatch batch) {
+      droppedRecords.inc(batch.size());
+      logger.atWarning().atMostEvery(10, TimeUnit.SECONDS).log(
+          "[streamName: %s] [shardId: %s] Dispatch queue full, dropped %d records",
+          streamName, batch.shardId(), batch.size());
+    }
+
+    private void spill(RecordBatch batch) {
+      try {
+        spill.append(batch);
+        spilledRecords.inc(batch.size());
+        updateDepth(batch.size());
+        pendingBatches.merge(batch.shardId(), 1, Integer::sum);
+        spilledBatches.merge(batch.shardId(), 1, Integer::sum);
+        notEmpty.signal();
+      } catch (IOException e) {
+        droppedRecords.inc(batch.size());
+        logger.atSevere().withCause(e).log(
+            "[streamName: %s] [shardId: %s] Could not spill %d records to disk, dropping them",
+            streamName, batch.shardId(), batch.size());
+      }
+    }
+  }
+
+  /**
+   * Append-only overflow file, read back in order and deleted once fully drained. A file left by a
+   * previous run is deleted when opened.
+   */
+  private class SpillFile {
+    private final File file;
+    private DataOutputStream out;
+    private DataInputStream in;
+    private int pendingBatches;
+    private long pendingRecords;
+
+    SpillFile(File file) {
+      this.file = file;
+      if (file.isFile()) {
+        logger.atInfo().log(
+            "[streamName: %s] Deleting spill file %s left by a previous run, its records are"
+                + " fetched again from the last checkpoint",
+            streamName, file);
+        reset();
+      }
+    }
+
+    boolean hasPending() {
+      return pendingBatches > 0;
+    }
+
+    long pendingRecords() {
+      return pendingRecords;
+    }
+
+    void append(RecordBatch batch) throws IOException {
+      if (out == null) {
+        Files.createDirectories(file.getParentFile().toPath());
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+      }
+      batch.writeTo(out);
+      out.flush();
+      pendingBatches++;
+      pendingRecords += batch.size();
+    }
+
+    RecordBatch next() throws IOException {
+      if (in == null) {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      }
+      RecordBatch batch = RecordBatch.readFrom(in);
+      pendingBatches--;
+      pendingRecords -= batch.size();
+      if (pendingBatches == 0) {
+        reset();
+      }
+      return batch;
+    }
+
+    void reset() {
+      closeQuietly(in);
+      closeQuietly(out);
+      in = null;
+      out = null;
+      pendingBatches = 0;
+      pendingRecords = 0;
+      if (file.exists() && !file.delete()) {
+        logger.atWarning().log("Could not delete spill file %s", file);
+      }
+    }
+
+    private void closeQuietly(Closeable closeable) {
+      if (closeable != null) {
+        try {
+          closeable.close();
+        } catch (IOException e) {
+          logger.atFine().withCause(e).log("Could not close spill file");
+        }
+      }
+    }
+  }
+}
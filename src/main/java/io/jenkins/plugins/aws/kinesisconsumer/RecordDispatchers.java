@@ -0,0 +1,126 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.jenkins.plugins.aws.kinesisconsumer.extensions.AWSKinesisRecord;
+import java.io.File;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import jenkins.model.Jenkins;
+
+/**
+ * Registry of the {@link RecordDispatcher}s of the streams configured for asynchronous dispatch,
+ * and of the {@link PartitionKeyExecutor}s of the streams processing partition keys in parallel
+ */
+@Singleton
+class RecordDispatchers {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private final Map<String, RecordDispatcher> dispatchers = new ConcurrentHashMap<>();
+  private final Map<String, PartitionKeyExecutor> keyExecutors = new ConcurrentHashMap<>();
+  private final RecordFilters recordFilters;
+  private final ExecutorProvider executorProvider;
+
+  @Inject
+  RecordDispatchers(RecordFilters recordFilters, ExecutorProvider executorProvider) {
+    this.recordFilters = recordFilters;
+    this.executorProvider = executorProvider;
+  }
+
+  /**
+   * Start the dispatcher of a stream, if the stream is configured for asynchronous dispatch, and
+   * its partition key executor, if the stream processes partition keys in parallel. The dispatcher
+   * previously started for the stream, if any, is drained before the new one starts.
+   *
+   * @param kinesisStreamItem the stream configuration
+   * @param shutdownTimeoutMs maximum time to wait for the previous dispatcher to drain
+   */
+  void start(KinesisStreamItem kinesisStreamItem, long shutdownTimeoutMs) {
+    String streamName = kinesisStreamItem.getStreamName();
+    PartitionKeyExecutor previousKeyExecutor =
+        kinesisStreamItem.getParallelPartitionKeys()
+            ? keyExecutors.put(
+                streamName,
+                new PartitionKeyExecutor(
+                    streamName,
+                    kinesisStreamItem.getPartitionKeyThreads(),
+                    executorProvider.threadFactory(
+                        String.format("kinesis-keys-%s-", streamName))))
+            : keyExecutors.remove(streamName);
+    if (previousKeyExecutor != null) {
+      previousKeyExecutor.shutdown();
+    }
+    if (!kinesisStreamItem.getAsyncDispatch()) {
+      return;
+    }
+    Predicate<AWSKinesisRecord> filter = recordFilters.get(kinesisStreamItem);
+    RecordDispatcher dispatcher =
+        new RecordDispatcher(
+            streamName,
+            kinesisStreamItem.getDispatchThreads(),
+            kinesisStreamItem.getDispatchQueueCapacity(),
+            backpressure(kinesisStreamItem),
+            spillDir(streamName),
+            executorProvider.threadFactory(String.format("kinesis-dispatch-%s-", streamName)),
+            batch ->
+                KinesisRecordProcessor.deliver(
+                    streamName, batch, filter, partitionKeyExecutor(streamName)));
+    RecordDispatcher previous = dispatchers.put(streamName, dispatcher);
+    if (previous != null) {
+      previous.shutdown(shutdownTimeoutMs);
+    }
+    dispatcher.start();
+  }
+
+  /**
+   * Get the dispatcher of a stream
+   *
+   * @param streamName the stream name
+   * @return the dispatcher, or empty if the records of the stream are delivered synchronously
+   */
+  Optional<RecordDispatcher> get(String streamName) {
+    return Optional.ofNullable(dispatchers.get(streamName));
+  }
+
+  /**
+   * Get the executor delivering the records of a stream
+   *
+   * @param streamName the stream name
+   * @return the partition key executor, or the sequential one if the partition keys of the stream
+   *     are not processed in parallel
+   */
+  PartitionKeyExecutor partitionKeyExecutor(String streamName) {
+    return keyExecutors.getOrDefault(streamName, PartitionKeyExecutor.sequential());
+  }
+
+  /**
+   * Stop the dispatcher of a stream, waiting for the queued records to be delivered
+   *
+   * @param streamName the stream name
+   * @param timeoutMs maximum time to wait
+   */
+  void stop(String streamName, long timeoutMs) {
+    Optional.ofNullable(dispatchers.remove(streamName))
+        .ifPresent(dispatcher -> dispatcher.shutdown(timeoutMs));
+    Optional.ofNullable(keyExecutors.remove(streamName)).ifPresent(PartitionKeyExecutor::shutdown);
+  }
+
+  private static DispatchBackpressure backpressure(KinesisStreamItem kinesisStreamItem) {
+    try {
+      return DispatchBackpressure.valueOf(kinesisStreamItem.getDispatchBackpressure());
+    } catch (IllegalArgumentException e) {
+      logger.atSevere().log(
+          "[streamName: %s] Invalid dispatch backpressure '%s', falling back to %s",
+          kinesisStreamItem.getStreamName(),
+          kinesisStreamItem.getDispatchBackpressure(),
+          DispatchBackpressure.BLOCK);
+      return DispatchBackpressure.BLOCK;
+    }
+  }
+
+  private static File spillDir(String streamName) {
+    return new File(Jenkins.get().getRootDir(), "aws-kinesis-consumer/spill/" + streamName);
+  }
+}
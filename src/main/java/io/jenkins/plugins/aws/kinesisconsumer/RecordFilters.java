@@ -0,0 +1,74 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import com.google.inject.Singleton;
+import io.jenkins.plugins.aws.kinesisconsumer.extensions.AWSKinesisRecord;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Registry of the filters applied to the records of each stream before they are delivered to the
+ * listeners: the {@link RecordPreFilter} rules, then the {@link RecordDeduplicator}, so that the
+ * records filtered out do not take room in the deduplication cache. The state of a filter survives
+ * the restart of the consumer of its stream, as long as its settings are unchanged.
+ */
+@Singleton
+class RecordFilters {
+  private static final Predicate<AWSKinesisRecord> ACCEPT_ALL = record -> true;
+
+  private final Map<String, Entry> filters = new ConcurrentHashMap<>();
+
+  /**
+   * Get the filter of a stream
+   *
+   * @param kinesisStreamItem the stream configuration
+   * @return the predicate accepting the records to deliver
+   */
+  Predicate<AWSKinesisRecord> get(KinesisStreamItem kinesisStreamItem) {
+    return filters
+        .compute(
+            kinesisStreamItem.getStreamName(),
+            (streamName, entry) ->
+                entry != null && entry.settings.equals(settings(kinesisStreamItem))
+                    ? entry
+                    : new Entry(kinesisStreamItem))
+        .filter;
+  }
+
+  private static Object settings(KinesisStreamItem kinesisStreamItem) {
+    return Arrays.asList(
+        kinesisStreamItem.getFilterJsonPath(),
+        kinesisStreamItem.getFilterPayloadPrefix(),
+        kinesisStreamItem.getFilterPayloadRegex(),
+        kinesisStreamItem.getFilterPartitionKeyRegex(),
+        kinesisStreamItem.getDedupEnabled(),
+        kinesisStreamItem.getDedupIdJsonPath(),
+        kinesisStreamItem.getDedupMaxEntries(),
+        kinesisStreamItem.getDedupWindowSeconds());
+  }
+
+  private static class Entry {
+    private final Object settings;
+    private final Predicate<AWSKinesisRecord> filter;
+
+    Entry(KinesisStreamItem kinesisStreamItem) {
+      this.settings = settings(kinesisStreamItem);
+      Predicate<AWSKinesisRecord> predicate = ACCEPT_ALL;
+      RecordPreFilter preFilter = new RecordPreFilter(kinesisStreamItem);
+      if (preFilter.hasRules()) {
+        predicate = preFilter;
+      }
+      if (kinesisStreamItem.getDedupEnabled()) {
+        predicate =
+            predicate.and(
+                new RecordDeduplicator(
+                    kinesisStreamItem.getStreamName(),
+                    kinesisStreamItem.getCompiledDedupIdJsonPath(),
+                    kinesisStreamItem.getDedupMaxEntries(),
+                    kinesisStreamItem.getDedupWindowSeconds()));
+      }
+      this.filter = predicate;
+    }
+  }
+}
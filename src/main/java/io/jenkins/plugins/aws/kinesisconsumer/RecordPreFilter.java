@@ -0,0 +1,168 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import com.google.common.flogger.FluentLogger;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.JsonPathException;
+import com.jayway.jsonpath.Option;
+import com.jayway.jsonpath.ParseContext;
+import com.jayway.jsonpath.spi.json.JsonSmartJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JsonSmartMappingProvider;
+import io.jenkins.plugins.aws.kinesisconsumer.extensions.AWSKinesisRecord;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.Counter;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.MetricsRegistry;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Rules of a stream selecting the records delivered to the listeners, so that irrelevant records
+ * are dropped once rather than by every listener. A record is delivered only if it matches all the
+ * configured rules, which are evaluated from the cheapest to the most expensive.
+ */
+class RecordPreFilter implements Predicate<AWSKinesisRecord> {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final ParseContext PARSE_CONTEXT =
+      JsonPath.using(
+          Configuration.builder()
+              .jsonProvider(new JsonSmartJsonProvider())
+              .mappingProvider(new JsonSmartMappingProvider())
+              .options(Option.SUPPRESS_EXCEPTIONS)
+              .build());
+
+  private final List<Rule> rules = new ArrayList<>();
+
+  /**
+   * Creates RecordPreFilter instance from the filter rules of a stream
+   *
+   * @param kinesisStreamItem the stream configuration
+   */
+  RecordPreFilter(KinesisStreamItem kinesisStreamItem) {
+    String streamName = kinesisStreamItem.getStreamName();
+    Pattern partitionKeyPattern =
+        compile(streamName, kinesisStreamItem.getFilterPartitionKeyRegex());
+    if (partitionKeyPattern != null) {
+      rules.add(
+          new Rule(
+              streamName,
+              "partition_key",
+              r ->
+                  r.getPartitionKey() != null
+                      && partitionKeyPattern.matcher(r.getPartitionKey()).matches()));
+    }
+    String prefix = kinesisStreamItem.getFilterPayloadPrefix();
+    if (prefix != null) {
+      byte[] bytes = prefix.getBytes(StandardCharsets.UTF_8);
+      rules.add(new Rule(streamName, "payload_prefix", r -> startsWith(r.getData(), bytes)));
+    }
+    Pattern payloadPattern = compile(streamName, kinesisStreamItem.getFilterPayloadRegex());
+    if (payloadPattern != null) {
+      rules.add(
+          new Rule(
+              streamName, "payload_regex", r -> payloadPattern.matcher(r.getJsonPayload()).find()));
+    }
+    JsonPath jsonPath = compileJsonPath(streamName, kinesisStreamItem.getFilterJsonPath());
+    if (jsonPath != null) {
+      rules.add(
+          new Rule(streamName, "json_path", r -> matches(streamName, r, jsonPath)));
+    }
+  }
+
+  /**
+   * Indicates if at least one rule is configured
+   *
+   * @return true if some records may be filtered out
+   */
+  boolean hasRules() {
+    return !rules.isEmpty();
+  }
+
+  @Override
+  public boolean test(AWSKinesisRecord record) {
+    for (Rule rule : rules) {
+      if (!rule.predicate.test(record)) {
+        rule.filtered.inc();
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean startsWith(ByteBuffer data, byte[] prefix) {
+    if (data.remaining() < prefix.length) {
+      return false;
+    }
+    int position = data.position();
+    for (int i = 0; i < prefix.length; i++) {
+      if (data.get(position + i) != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** A record whose payload is not valid JSON is never selected by a JSON Path */
+  private static boolean matches(String streamName, AWSKinesisRecord record, JsonPath jsonPath) {
+    try {
+      return matches(PARSE_CONTEXT.parse(record.getJsonPayload()).read(jsonPath));
+    } catch (JsonPathException e) {
+      logger.atWarning().atMostEvery(1, TimeUnit.MINUTES).withCause(e).log(
+          "[streamName: %s] Could not parse record %s, filtering it out",
+          streamName, record.getSequenceNumber());
+      return false;
+    }
+  }
+
+  /** A JSON Path selects a record when it finds a value, other than false or an empty list */
+  private static boolean matches(Object value) {
+    if (value instanceof Collection) {
+      return !((Collection<?>) value).isEmpty();
+    }
+    return value != null && !Boolean.FALSE.equals(value);
+  }
+
+  private static Pattern compile(String streamName, String regex) {
+    if (regex == null) {
+      return null;
+    }
+    try {
+      return Pattern.compile(regex);
+    } catch (PatternSyntaxException e) {
+      logger.atSevere().withCause(e).log(
+          "[streamName: %s] Invalid filter regex '%s', ignoring it", streamName, regex);
+      return null;
+    }
+  }
+
+  private static JsonPath compileJsonPath(String streamName, String jsonPath) {
+    if (jsonPath == null) {
+      return null;
+    }
+    try {
+      return JsonPath.compile(jsonPath);
+    } catch (InvalidPathException e) {
+      logger.atSevere().withCause(e).log(
+          "[streamName: %s] Invalid filter JSON Path '%s', ignoring it", streamName, jsonPath);
+      return null;
+    }
+  }
+
+  private static class Rule {
+    private final Predicate<AWSKinesisRecord> predicate;
+    private final Counter filtered;
+
+    Rule(String streamName, String name, Predicate<AWSKinesisRecord> predicate) {
+      this.predicate = predicate;
+      this.filtered =
+          MetricsRegistry.get()
+              .counter("kinesis_records_filtered", "stream", streamName, "rule", name);
+    }
+  }
+}
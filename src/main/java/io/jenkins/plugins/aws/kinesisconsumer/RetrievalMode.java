@@ -0,0 +1,16 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+/**
+ * How the records of a stream are retrieved from Kinesis
+ */
+public enum RetrievalMode {
+  /** Records are pushed by Kinesis to a registered consumer through SubscribeToShard */
+  FAN_OUT,
+  /** Records are periodically pulled through GetRecords */
+  POLLING,
+  /**
+   * Records are pulled through GetRecords less often while shards are empty, and faster and in
+   * larger batches while shards are lagging behind
+   */
+  ADAPTIVE_POLLING
+}
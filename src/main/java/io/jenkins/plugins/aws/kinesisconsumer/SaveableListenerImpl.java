@@ -26,8 +26,8 @@ public class SaveableListenerImpl extends SaveableListener {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
 
   /**
-   * On change restart the AWS Kinesis consumer. This is useful, for example, when adding a new
-   * stream to listen from
+   * On change reconcile the AWS Kinesis consumers with the new configuration. This is useful, for
+   * example, when adding a new stream to listen from
    *
    * @param o saved object
    * @param file XML file containing the new configuration
@@ -36,7 +36,7 @@ public class SaveableListenerImpl extends SaveableListener {
   public final void onChange(Saveable o, XmlFile file) {
     if (o instanceof GlobalKinesisConfiguration) {
       logger.atInfo().log("AWS Kinesis Configuration is updated");
-      manager.restartAllConsumers((GlobalKinesisConfiguration) o);
+      manager.reconcileConsumers((GlobalKinesisConfiguration) o);
     }
     super.onChange(o, file);
   }
@@ -1,8 +1,14 @@
 package io.jenkins.plugins.aws.kinesisconsumer;
 
+import com.google.common.flogger.FluentLogger;
 import com.google.inject.Provider;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.LocalMetricsFactory;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.MetricsRegistry;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Collectors;
 import software.amazon.awssdk.services.cloudwatch.CloudWatchAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
@@ -10,7 +16,14 @@ import software.amazon.kinesis.common.ConfigsBuilder;
 import software.amazon.kinesis.common.InitialPositionInStream;
 import software.amazon.kinesis.common.InitialPositionInStreamExtended;
 import software.amazon.kinesis.coordinator.Scheduler;
+import software.amazon.kinesis.metrics.MetricsConfig;
+import software.amazon.kinesis.metrics.MetricsLevel;
+import software.amazon.kinesis.metrics.NullMetricsFactory;
+import software.amazon.kinesis.processor.ProcessorConfig;
 import software.amazon.kinesis.retrieval.RetrievalConfig;
+import software.amazon.kinesis.retrieval.RetrievalSpecificConfig;
+import software.amazon.kinesis.retrieval.fanout.FanOutConfig;
+import software.amazon.kinesis.retrieval.polling.PollingConfig;
 
 /**
  * Provider of Kinesis Scheduler
@@ -18,8 +31,10 @@ import software.amazon.kinesis.retrieval.RetrievalConfig;
  * @author Fabio Ponciroli
  */
 class SchedulerProvider implements Provider<Scheduler> {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
   private final GlobalKinesisConfiguration configuration;
   private final KinesisAsyncClient kinesisAsyncClient;
+  private final ExecutorProvider executorProvider;
 
   interface Factory {
     SchedulerProvider create(GlobalKinesisConfiguration configuration, String streamName);
@@ -35,9 +50,11 @@ class SchedulerProvider implements Provider<Scheduler> {
       DynamoDbAsyncClient dynamoDbAsyncClient,
       CloudWatchAsyncClient cloudWatchAsyncClient,
       KinesisRecordProcessorFactory.Factory kinesisRecordProcessorFactoryFactory,
+      ExecutorProvider executorProvider,
       @Assisted GlobalKinesisConfiguration configuration,
       @Assisted String streamName) {
     this.configuration = configuration;
+    this.executorProvider = executorProvider;
     this.streamName = streamName;
     this.kinesisAsyncClient = kinesisAsyncClient;
 
@@ -61,25 +78,145 @@ class SchedulerProvider implements Provider<Scheduler> {
   public Scheduler get() {
     return new Scheduler(
         configsBuilder.checkpointConfig(),
-        configsBuilder.coordinatorConfig(),
+        configsBuilder
+            .coordinatorConfig()
+            .coordinatorFactory(executorProvider.coordinatorFactory(streamName)),
         configsBuilder.leaseManagementConfig(),
         configsBuilder.lifecycleConfig(),
-        configsBuilder.metricsConfig(),
-        configsBuilder.processorConfig(),
+        getMetricsConfig(configsBuilder, configuration),
+        getProcessorConfig(configsBuilder),
         getRetrievalConfig());
   }
 
+  /**
+   * Build the processor configuration of a scheduler. The record processors are called for the
+   * empty batches too, so that the lag of an idle shard keeps being updated and the shard is not
+   * mistaken for a stalled one.
+   *
+   * @param configsBuilder the builder of the scheduler configuration
+   * @return the processor configuration
+   */
+  static ProcessorConfig getProcessorConfig(ConfigsBuilder configsBuilder) {
+    return configsBuilder.processorConfig().callProcessRecordsEvenForEmptyRecordList(true);
+  }
+
+  /**
+   * Build the metrics configuration of a scheduler from the global configuration: level, dimensions
+   * and buffer time, and where the metrics are sent
+   *
+   * @param configsBuilder the builder of the scheduler configuration
+   * @param configuration the global configuration
+   * @return the metrics configuration
+   */
+  static MetricsConfig getMetricsConfig(
+      ConfigsBuilder configsBuilder, GlobalKinesisConfiguration configuration) {
+    MetricsConfig metricsConfig = configsBuilder.metricsConfig();
+    metricsConfig.metricsLevel(
+        enumValue(MetricsLevel.class, configuration.getMetricsLevel(), MetricsLevel.DETAILED));
+    if (configuration.getMetricsDimensions() != null) {
+      metricsConfig.metricsEnabledDimensions(
+          Arrays.stream(configuration.getMetricsDimensions().split(","))
+              .map(String::trim)
+              .filter(d -> !d.isEmpty())
+              .collect(Collectors.toSet()));
+    }
+    if (configuration.getMetricsBufferTimeMs() != null) {
+      metricsConfig.metricsBufferTimeMillis(configuration.getMetricsBufferTimeMs());
+    }
+    switch (enumValue(MetricsSink.class, configuration.getMetricsSink(), MetricsSink.CLOUDWATCH)) {
+      case LOCAL:
+        metricsConfig.metricsFactory(
+            new LocalMetricsFactory(
+                MetricsRegistry.get(),
+                metricsConfig.metricsLevel(),
+                metricsConfig.metricsEnabledDimensions()));
+        break;
+      case NONE:
+        metricsConfig.metricsFactory(new NullMetricsFactory());
+        break;
+      default:
+        break;
+    }
+    return metricsConfig;
+  }
+
+  private static <T extends Enum<T>> T enumValue(Class<T> type, String value, T defaultValue) {
+    try {
+      return Enum.valueOf(type, value);
+    } catch (IllegalArgumentException e) {
+      logger.atSevere().log(
+          "Invalid %s '%s', falling back to %s", type.getSimpleName(), value, defaultValue);
+      return defaultValue;
+    }
+  }
+
   private RetrievalConfig getRetrievalConfig() {
+    KinesisStreamItem kinesisStreamItem = configuration.getKinesisStreamItemsForStream(streamName);
     RetrievalConfig retrievalConfig = configsBuilder.retrievalConfig();
     retrievalConfig.initialPositionInStreamExtended(
         InitialPositionInStreamExtended.newInitialPosition(
-            InitialPositionInStream.valueOf(
-                configuration
-                    .getKinesisStreamItemsForStream(streamName)
-                    .getInitialPositionInStream())));
+            InitialPositionInStream.valueOf(kinesisStreamItem.getInitialPositionInStream())));
+    retrievalConfig.retrievalSpecificConfig(getRetrievalSpecificConfig(kinesisStreamItem));
     return retrievalConfig;
   }
 
+  private RetrievalSpecificConfig getRetrievalSpecificConfig(KinesisStreamItem kinesisStreamItem) {
+    RetrievalMode retrievalMode = retrievalMode(kinesisStreamItem);
+    if (retrievalMode == RetrievalMode.ADAPTIVE_POLLING) {
+      logger.atInfo().log(
+          "[streamName: %s] Polling records adaptively (max records: %d, idle time: %d-%d ms)",
+          streamName,
+          kinesisStreamItem.getPollingMaxRecords(),
+          kinesisStreamItem.getPollingIdleTimeMs(),
+          kinesisStreamItem.getPollingMaxIdleTimeMs());
+      return new PollingConfig(streamName, kinesisAsyncClient)
+          .maxRecords(kinesisStreamItem.getPollingMaxRecords())
+          .recordsFetcherFactory(
+              new AdaptivePollingRecordsFetcherFactory(
+                  kinesisAsyncClient,
+                  streamName,
+                  kinesisStreamItem.getPollingMaxRecords(),
+                  kinesisStreamItem.getPollingIdleTimeMs(),
+                  kinesisStreamItem.getPollingMaxIdleTimeMs()));
+    }
+    if (retrievalMode == RetrievalMode.POLLING) {
+      logger.atInfo().log(
+          "[streamName: %s] Polling records (max records: %d, idle time: %d ms)",
+          streamName,
+          kinesisStreamItem.getPollingMaxRecords(),
+          kinesisStreamItem.getPollingIdleTimeMs());
+      return new PollingConfig(streamName, kinesisAsyncClient)
+          .maxRecords(kinesisStreamItem.getPollingMaxRecords())
+          .idleTimeBetweenReadsInMillis(kinesisStreamItem.getPollingIdleTimeMs());
+    }
+    FanOutConfig fanOutConfig =
+        new FanOutConfig(kinesisAsyncClient)
+            .streamName(streamName)
+            .applicationName(cosumerLeaseName(streamName));
+    if (kinesisStreamItem.getFanOutConsumerName() != null) {
+      fanOutConfig.consumerName(kinesisStreamItem.getFanOutConsumerName());
+    }
+    logger.atInfo().log(
+        "[streamName: %s] Subscribing to shards with enhanced fan-out (consumer: %s)",
+        streamName,
+        Optional.ofNullable(kinesisStreamItem.getFanOutConsumerName())
+            .orElse(cosumerLeaseName(streamName)));
+    return fanOutConfig;
+  }
+
+  private static RetrievalMode retrievalMode(KinesisStreamItem kinesisStreamItem) {
+    try {
+      return RetrievalMode.valueOf(kinesisStreamItem.getRetrievalMode());
+    } catch (IllegalArgumentException e) {
+      logger.atSevere().log(
+          "[streamName: %s] Invalid retrieval mode '%s', falling back to %s",
+          kinesisStreamItem.getStreamName(),
+          kinesisStreamItem.getRetrievalMode(),
+          RetrievalMode.FAN_OUT);
+      return RetrievalMode.FAN_OUT;
+    }
+  }
+
   private String getWorkerIdentifier(String streamName) {
     return String.format("klc-worker-%s-%s", configuration.getApplicationName(), streamName);
   }
@@ -0,0 +1,49 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
+
+/**
+ * Provider of the Netty {@link SdkEventLoopGroup} shared by the Kinesis, DynamoDB and CloudWatch
+ * async clients, so that they do not each start their own pool of I/O threads. The AWS clients do
+ * not close an event loop group they are given, hence it is closed on Jenkins shutdown by {@link
+ * KinesisConsumerManager}.
+ */
+@Singleton
+class SdkEventLoopGroupProvider implements Provider<SdkEventLoopGroup> {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private final GlobalKinesisConfiguration configuration;
+  private SdkEventLoopGroup eventLoopGroup;
+
+  @Inject
+  SdkEventLoopGroupProvider(GlobalKinesisConfiguration configuration) {
+    this.configuration = configuration;
+  }
+
+  @Override
+  public synchronized SdkEventLoopGroup get() {
+    SdkEventLoopGroup.Builder builder = SdkEventLoopGroup.builder();
+    if (configuration.getHttpEventLoopThreads() != null) {
+      builder.numberOfThreads(configuration.getHttpEventLoopThreads());
+    }
+    logger.atInfo().log(
+        "Creating shared HTTP event loop group (threads: %s)",
+        configuration.getHttpEventLoopThreads() == null
+            ? "default"
+            : configuration.getHttpEventLoopThreads());
+    eventLoopGroup = builder.build();
+    return eventLoopGroup;
+  }
+
+  /** Shut down the threads of the event loop group, once the AWS clients are no longer used */
+  synchronized void close() {
+    if (eventLoopGroup != null) {
+      logger.atInfo().log("Shutting down shared HTTP event loop group");
+      eventLoopGroup.eventLoopGroup().shutdownGracefully();
+      eventLoopGroup = null;
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import hudson.Extension;
+import hudson.model.AdministrativeMonitor;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.ShardLag;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.ShardLagRegistry;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Warn the administrators when shards are consumed further behind the tip of their stream than the
+ * configured lag alert threshold, or have not delivered records for longer than it
+ */
+@Extension
+public class ShardLagMonitor extends AdministrativeMonitor {
+
+  @Override
+  public String getDisplayName() {
+    return "AWS Kinesis Consumer Lag";
+  }
+
+  @Override
+  public boolean isActivated() {
+    return !getLaggingShards().isEmpty();
+  }
+
+  /**
+   * Get the shards lagging behind more than the alert threshold
+   *
+   * @return the lagging shards, empty when the alert threshold is not set
+   */
+  public List<ShardLag> getLaggingShards() {
+    Integer alertThresholdMs = GlobalKinesisConfiguration.get().getLagAlertThresholdMs();
+    if (alertThresholdMs == null) {
+      return Collections.emptyList();
+    }
+    return ShardLagRegistry.get().getLagging(alertThresholdMs);
+  }
+}
@@ -0,0 +1,69 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.ShardLagRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import software.amazon.kinesis.retrieval.KinesisClientRecord;
+import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
+
+/**
+ * Progress of the delivery of the records of a shard to the listeners
+ */
+class ShardProgress {
+  private final String streamName;
+  private final String shardId;
+  private volatile ExtendedSequenceNumber lastDispatched;
+  private final AtomicLong dispatchedRecords = new AtomicLong();
+
+  ShardProgress(String streamName, String shardId) {
+    this.streamName = streamName;
+    this.shardId = shardId;
+  }
+
+  /**
+   * Record that a batch has been delivered to the listeners, and report the lag of the shard as of
+   * this delivery: the lag of the batch when it was received plus the time it waited to be
+   * delivered.
+   *
+   * @param batch the batch delivered
+   */
+  void dispatched(RecordBatch batch) {
+    KinesisClientRecord last = batch.size() == 0 ? null : batch.records().get(batch.size() - 1);
+    if (last != null) {
+      lastDispatched = new ExtendedSequenceNumber(last.sequenceNumber(), last.subSequenceNumber());
+      dispatchedRecords.addAndGet(batch.size());
+    }
+    long behind =
+        batch.millisBehindLatest() < 0
+            ? -1
+            : batch.millisBehindLatest() + TimeUnit.NANOSECONDS.toMillis(batch.elapsedNanos());
+    // The lag of a shard no longer consumed is not registered again by late deliveries
+    ShardLagRegistry.get()
+        .find(streamName, shardId)
+        .ifPresent(
+            lag ->
+                lag.update(
+                    System.currentTimeMillis(),
+                    behind,
+                    last == null ? null : last.sequenceNumber(),
+                    last == null ? null : last.approximateArrivalTimestamp()));
+  }
+
+  /**
+   * Get the position of the last record delivered to the listeners
+   *
+   * @return the last position, or null if no record was delivered yet
+   */
+  ExtendedSequenceNumber lastDispatched() {
+    return lastDispatched;
+  }
+
+  /**
+   * Get the total number of records delivered to the listeners
+   *
+   * @return the number of records
+   */
+  long dispatchedRecords() {
+    return dispatchedRecords.get();
+  }
+}
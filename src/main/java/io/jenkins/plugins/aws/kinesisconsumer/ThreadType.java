@@ -0,0 +1,11 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+/**
+ * Kind of threads running the schedulers, the shard consumers and the record dispatch
+ */
+public enum ThreadType {
+  /** Platform threads, the shard consumers of each scheduler sharing a bounded pool */
+  PLATFORM,
+  /** Virtual threads, available from Java 21, falling back to platform threads otherwise */
+  VIRTUAL
+}
@@ -0,0 +1,133 @@
+package io.jenkins.plugins.aws.kinesisconsumer.extensions;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * A record received from an AWS Kinesis stream, along with its metadata.
+ *
+ * <p>The data of the record is exposed as a read-only {@link ByteBuffer} without any copy. The
+ * JSON payload string is only decoded on the first call to {@link #getJsonPayload()}, and then
+ * shared by all the listeners.
+ */
+public class AWSKinesisRecord {
+  private final String shardId;
+  private final String sequenceNumber;
+  private final long subSequenceNumber;
+  private final String partitionKey;
+  private final Instant approximateArrivalTimestamp;
+  private final ByteBuffer data;
+  private volatile String jsonPayload;
+
+  /**
+   * Creates AWSKinesisRecord instance.
+   *
+   * @param shardId the shard the record was read from
+   * @param sequenceNumber the sequence number of the record within the shard
+   * @param subSequenceNumber the sub-sequence number, for records de-aggregated from a KPL record
+   * @param partitionKey the partition key of the record
+   * @param approximateArrivalTimestamp when the record was added to the stream, can be null
+   * @param jsonPayload string containing the JSON payload of the record
+   */
+  public AWSKinesisRecord(
+      String shardId,
+      String sequenceNumber,
+      long subSequenceNumber,
+      String partitionKey,
+      Instant approximateArrivalTimestamp,
+      String jsonPayload) {
+    this.shardId = shardId;
+    this.sequenceNumber = sequenceNumber;
+    this.subSequenceNumber = subSequenceNumber;
+    this.partitionKey = partitionKey;
+    this.approximateArrivalTimestamp = approximateArrivalTimestamp;
+    this.data = ByteBuffer.wrap(jsonPayload.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+    this.jsonPayload = jsonPayload;
+  }
+
+  /**
+   * Creates AWSKinesisRecord instance from the raw record data.
+   *
+   * @param shardId the shard the record was read from
+   * @param sequenceNumber the sequence number of the record within the shard
+   * @param subSequenceNumber the sub-sequence number, for records de-aggregated from a KPL record
+   * @param partitionKey the partition key of the record
+   * @param approximateArrivalTimestamp when the record was added to the stream, can be null
+   * @param data the record data, which is not copied
+   */
+  public AWSKinesisRecord(
+      String shardId,
+      String sequenceNumber,
+      long subSequenceNumber,
+      String partitionKey,
+      Instant approximateArrivalTimestamp,
+      ByteBuffer data) {
+    this.shardId = shardId;
+    this.sequenceNumber = sequenceNumber;
+    this.subSequenceNumber = subSequenceNumber;
+    this.partitionKey = partitionKey;
+    this.approximateArrivalTimestamp = approximateArrivalTimestamp;
+    this.data = data.asReadOnlyBuffer();
+  }
+
+  public String getShardId() {
+    return shardId;
+  }
+
+  public String getSequenceNumber() {
+    return sequenceNumber;
+  }
+
+  public long getSubSequenceNumber() {
+    return subSequenceNumber;
+  }
+
+  public String getPartitionKey() {
+    return partitionKey;
+  }
+
+  /**
+   * Get the approximate time the record was added to the stream
+   *
+   * @return the arrival timestamp, or null if not available
+   */
+  public Instant getApproximateArrivalTimestamp() {
+    return approximateArrivalTimestamp;
+  }
+
+  /**
+   * Get the data of the record. Each call returns a new read-only view, positioned at the beginning
+   * of the data, so that listeners do not affect each other.
+   *
+   * @return the record data
+   */
+  public ByteBuffer getData() {
+    return data.duplicate();
+  }
+
+  /**
+   * Get the data of the record decoded as an UTF-8 string. The string is decoded on the first call
+   * only.
+   *
+   * @return string containing the JSON payload of the record
+   */
+  public String getJsonPayload() {
+    String payload = jsonPayload;
+    if (payload == null) {
+      ByteBuffer buffer = data.duplicate();
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      payload = new String(bytes, StandardCharsets.UTF_8);
+      jsonPayload = payload;
+    }
+    return payload;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "AWSKinesisRecord{shardId=%s, sequenceNumber=%s, subSequenceNumber=%d, partitionKey=%s}",
+        shardId, sequenceNumber, subSequenceNumber, partitionKey);
+  }
+}
@@ -2,25 +2,41 @@ package io.jenkins.plugins.aws.kinesisconsumer.extensions;
 
 import com.google.common.flogger.FluentLogger;
 import hudson.ExtensionList;
+import hudson.ExtensionListListener;
 import hudson.ExtensionPoint;
 import hudson.security.ACL;
+import hudson.security.ACLContext;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.MetricsRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import jenkins.model.Jenkins;
-import org.acegisecurity.context.SecurityContext;
-import org.acegisecurity.context.SecurityContextHolder;
 
 /**
  * Extension point to implement by external applications to listen to records coming from a Kinesis
  * stream. The external application has to:
  *
  * <ul>
- *   <li>Implement the logic upon record receive by overriding {@link
+ *   <li>Implement the logic upon record receive by implementing {@link
  *       AWSKinesisStreamListener#onReceive(String, String)}
+ *   <li>Optionally, override {@link AWSKinesisStreamListener#onReceiveRecord(String,
+ *       AWSKinesisRecord)} to access the raw record data and metadata without decoding the payload
+ *   <li>Optionally, override {@link AWSKinesisStreamListener#onReceiveBatch(String, String, List)}
+ *       to handle all the records fetched at once from a shard, i.e. to coalesce work across them
  * </ul>
  *
+ * <p>Listeners are invoked with the system authentication. The security context is established
+ * once per batch, and the registered listeners are looked up once and refreshed only when the
+ * {@link AWSKinesisStreamListener} extensions change.
+ *
  * @author Fabio Ponciroli
  */
 public abstract class AWSKinesisStreamListener implements ExtensionPoint {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /** Listeners registered in the running Jenkins instance, refreshed on extension changes */
+  private static volatile Snapshot snapshot;
+
   /**
    * This needs to be overridden to implement the logic upon record receive
    *
@@ -29,12 +45,87 @@ public abstract class AWSKinesisStreamListener implements ExtensionPoint {
    */
   public abstract void onReceive(String streamName, String jsonPayload);
 
-  public static void fireOnReceive(String streamName, String jsonPayload) {
+  /**
+   * Invoked for each record received. By default the record data is decoded as a string and
+   * delivered to {@link AWSKinesisStreamListener#onReceive(String, String)}. Listeners only needing
+   * the raw bytes, or a small part of the payload, should override this method and read {@link
+   * AWSKinesisRecord#getData()} to avoid decoding the whole payload.
+   *
+   * @param streamName source AWS Kinesis stream name
+   * @param record the record received
+   */
+  public void onReceiveRecord(String streamName, AWSKinesisRecord record) {
+    onReceive(streamName, record.getJsonPayload());
+  }
 
-    // TODO: Handle security: this way is deprecated
-    SecurityContext old = ACL.impersonate(ACL.SYSTEM);
-    try {
-      for (AWSKinesisStreamListener listener : getAllRegisteredListeners()) {
+  /**
+   * Invoked with all the records fetched at once from a shard. By default each record is delivered
+   * to {@link AWSKinesisStreamListener#onReceiveRecord(String, AWSKinesisRecord)}.
+   *
+   * <p>When the stream processes partition keys in parallel, the records fetched are split by
+   * partition key, and this method may be invoked concurrently for the same shard, each time with
+   * the records of different partition keys, still in shard order.
+   *
+   * @param streamName source AWS Kinesis stream name
+   * @param shardId the shard the records were read from
+   * @param records the records, in shard order
+   */
+  public void onReceiveBatch(String streamName, String shardId, List<AWSKinesisRecord> records) {
+    for (AWSKinesisRecord record : records) {
+      try {
+        onReceiveRecord(streamName, record);
+      } catch (Exception ex) {
+        logger.atSevere().withCause(ex).log(
+            "Error calling onReceiveRecord() for listener %s, stream %s, record %s",
+            this, streamName, record);
+      }
+    }
+  }
+
+  /**
+   * Deliver a batch of records to all the registered listeners, with the system authentication
+   *
+   * @param streamName source AWS Kinesis stream name
+   * @param shardId the shard the records were read from
+   * @param records the records, in shard order
+   */
+  public static void fireOnReceiveBatch(
+      String streamName, String shardId, List<AWSKinesisRecord> records) {
+    List<AWSKinesisStreamListener> listeners = getListeners();
+    try (ACLContext acl = ACL.as2(ACL.SYSTEM2)) {
+      for (AWSKinesisStreamListener listener : listeners) {
+        String listenerName = listener.getClass().getName();
+        long start = System.nanoTime();
+        try {
+          listener.onReceiveBatch(streamName, shardId, records);
+        } catch (Exception ex) {
+          MetricsRegistry.get()
+              .counter("kinesis_listener_errors", "stream", streamName, "listener", listenerName)
+              .inc();
+          logger.atSevere().withCause(ex).log(
+              "Error calling onReceiveBatch() for listener %s, stream %s", listener, streamName);
+        } finally {
+          MetricsRegistry.get()
+              .histogram(
+                  "kinesis_listener_batch_ms", "stream", streamName, "listener", listenerName)
+              .record((System.nanoTime() - start) / 1e6);
+        }
+      }
+    }
+  }
+
+  /**
+   * Deliver a single record payload to all the registered listeners, with the system
+   * authentication. Prefer {@link AWSKinesisStreamListener#fireOnReceiveBatch(String, String,
+   * List)} to deliver several records.
+   *
+   * @param streamName source AWS Kinesis stream name
+   * @param jsonPayload string containing the JSON payload of the AWS kinesis record
+   */
+  public static void fireOnReceive(String streamName, String jsonPayload) {
+    List<AWSKinesisStreamListener> listeners = getListeners();
+    try (ACLContext acl = ACL.as2(ACL.SYSTEM2)) {
+      for (AWSKinesisStreamListener listener : listeners) {
         try {
           listener.onReceive(streamName, jsonPayload);
         } catch (Exception ex) {
@@ -42,8 +133,61 @@ public abstract class AWSKinesisStreamListener implements ExtensionPoint {
               "Error calling onReceive() for listener %s, stream %s", listener, streamName);
         }
       }
-    } finally {
-      SecurityContextHolder.setContext(old);
+    }
+  }
+
+  /**
+   * Gets the registered listeners from the snapshot taken for the running Jenkins instance,
+   * without looking up the extension list.
+   *
+   * @return the registered listeners, in extension ordinal order
+   */
+  static List<AWSKinesisStreamListener> getListeners() {
+    Jenkins jenkins = Jenkins.getInstanceOrNull();
+    if (jenkins == null) {
+      throw new IllegalStateException("Jenkins is not started or is stopped");
+    }
+    Snapshot current = snapshot;
+    if (current != null && current.jenkins == jenkins) {
+      return current.listeners;
+    }
+    return subscribe(jenkins).listeners;
+  }
+
+  /**
+   * Take a snapshot of the listeners registered in a Jenkins instance, and refresh it whenever its
+   * {@link AWSKinesisStreamListener} extensions change
+   */
+  private static synchronized Snapshot subscribe(Jenkins jenkins) {
+    Snapshot current = snapshot;
+    if (current != null && current.jenkins == jenkins) {
+      return current;
+    }
+    ExtensionList<AWSKinesisStreamListener> extensions =
+        jenkins.getExtensionList(AWSKinesisStreamListener.class);
+    extensions.addListener(
+        new ExtensionListListener() {
+          @Override
+          public void onChange() {
+            synchronized (AWSKinesisStreamListener.class) {
+              if (snapshot != null && snapshot.jenkins == jenkins) {
+                snapshot = new Snapshot(jenkins, extensions);
+              }
+            }
+          }
+        });
+    current = new Snapshot(jenkins, extensions);
+    snapshot = current;
+    return current;
+  }
+
+  private static final class Snapshot {
+    private final Jenkins jenkins;
+    private final List<AWSKinesisStreamListener> listeners;
+
+    private Snapshot(Jenkins jenkins, ExtensionList<AWSKinesisStreamListener> extensions) {
+      this.jenkins = jenkins;
+      this.listeners = Collections.unmodifiableList(new ArrayList<>(extensions));
     }
   }
 
@@ -2,21 +2,34 @@ package io.jenkins.plugins.aws.kinesisconsumer.listeners;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.flogger.FluentLogger;
+import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.JsonPath;
-import com.jayway.jsonpath.PathNotFoundException;
+import com.jayway.jsonpath.JsonPathException;
+import com.jayway.jsonpath.Option;
+import com.jayway.jsonpath.ParseContext;
+import com.jayway.jsonpath.spi.json.JsonSmartJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JsonSmartMappingProvider;
 import hudson.Extension;
 import hudson.security.ACL;
 import hudson.security.ACLContext;
 import io.jenkins.plugins.aws.kinesisconsumer.GlobalKinesisConfiguration;
 import io.jenkins.plugins.aws.kinesisconsumer.KinesisStreamItem;
+import io.jenkins.plugins.aws.kinesisconsumer.extensions.AWSKinesisRecord;
 import io.jenkins.plugins.aws.kinesisconsumer.extensions.AWSKinesisStreamListener;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.Counter;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.Histogram;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.MetricsRegistry;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import jenkins.model.Jenkins;
 import jenkins.plugins.git.AbstractGitSCMSource;
 import jenkins.scm.api.SCMSource;
 import jenkins.scm.api.SCMSourceOwner;
-import org.jenkinsci.plugins.workflow.multibranch.WorkflowMultiBranchProject;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -24,7 +37,9 @@ import org.jetbrains.annotations.NotNull;
  *
  * <p>If as stream has been configured to trigger an SCM build, the listener will extract the
  * project name from the payload of the event and will lookup for the SCM Sources to trigger a scan
- * for.
+ * for. Candidate jobs are resolved through the {@link SCMSourceIndex} rather than scanning all the
+ * Jenkins items. Simple project name JSON Paths are evaluated by streaming over the raw record
+ * data, stopping at the project field, rather than by parsing the whole payload.
  *
  * @author Fabio Ponciroli
  */
@@ -32,39 +47,104 @@ import org.jetbrains.annotations.NotNull;
 public class AWSKinesisStreamListenerImpl extends AWSKinesisStreamListener {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
 
+  /**
+   * Shared parse context with explicit providers, so that the global JSON Path defaults are not
+   * resolved for every record, and missing paths do not pay for an exception.
+   */
+  private static final ParseContext PARSE_CONTEXT =
+      JsonPath.using(
+          Configuration.builder()
+              .jsonProvider(new JsonSmartJsonProvider())
+              .mappingProvider(new JsonSmartMappingProvider())
+              .options(Option.SUPPRESS_EXCEPTIONS)
+              .build());
+
+  private final Map<String, StreamMetrics> metricsByStream = new ConcurrentHashMap<>();
+  private final SCMTriggerCoalescer coalescer = new SCMTriggerCoalescer();
+  private final Map<String, Optional<StreamingJsonFieldExtractor>> extractors =
+      new ConcurrentHashMap<>();
+
   @Override
   public void onReceive(String streamName, String jsonPayload) {
     getProjectFromEvent(streamName, jsonPayload)
-        .ifPresent(
-            projectFromEvent -> {
-              String username = getJenkinsInstance().getAuthentication2().getName();
-
-              logger.atInfo().log(
-                  String.format(
-                      "SCM action invoked by user '%s' for project: %s",
-                      username, projectFromEvent));
+        .ifPresent(projectFromEvent -> triggerSCMBuild(streamName, projectFromEvent));
+  }
+
+  /**
+   * Extract the project name from the raw record data when the configured JSON Path is simple
+   * enough, without decoding the payload as a string.
+   *
+   * @param streamName source AWS Kinesis stream name
+   * @param record the record received
+   */
+  @Override
+  public void onReceiveRecord(String streamName, AWSKinesisRecord record) {
+    getProjectFromRecord(streamName, record)
+        .ifPresent(projectFromEvent -> triggerSCMBuild(streamName, projectFromEvent));
+  }
+
+  private void triggerSCMBuild(String streamName, String projectFromEvent) {
+    String username = getJenkinsInstance().getAuthentication2().getName();
+
+    logger.atInfo().log(
+        String.format(
+            "SCM action invoked by user '%s' for project: %s", username, projectFromEvent));
+    StreamMetrics metrics = getStreamMetrics(streamName);
+    long start = System.nanoTime();
+    // Listeners are invoked with the system authentication, no need to switch context per record
+    try {
+      Set<String> jobNames = getSCMSourceIndex().getJobsForProject(projectFromEvent);
+      logger.atInfo().log("Scanning %d Jenkins items", jobNames.size());
+      for (String jobName : jobNames) {
+        SCMSourceOwner scmJob =
+            getJenkinsInstance().getItemByFullName(jobName, SCMSourceOwner.class);
+        if (scmJob == null) {
+          continue;
+        }
+        logger.atInfo().log("Scanning job " + scmJob);
+        List<SCMSource> scmSources = scmJob.getSCMSources();
+        for (SCMSource scmSource : scmSources) {
+          if (triggerSCMBuildForSource(scmSource, projectFromEvent)) {
+            triggerSCMSourceUpdated(metrics, projectFromEvent, scmJob, scmSource);
+          } else {
+            logger.atFine().log(
+                "No build to trigger for project %s, SCM id %s",
+                projectFromEvent, scmSource.getId());
+          }
+        }
+      }
+    } finally {
+      metrics.scmLookupMs.record((System.nanoTime() - start) / 1e6);
+    }
+  }
+
+  /**
+   * Notify the job its SCM source has been updated, coalescing the notifications received for the
+   * same job and SCM source within the configured quiet period
+   */
+  private void triggerSCMSourceUpdated(
+      StreamMetrics metrics, String projectFromEvent, SCMSourceOwner scmJob, SCMSource scmSource) {
+    GlobalKinesisConfiguration configuration = GlobalKinesisConfiguration.get();
+    boolean fired =
+        coalescer.submit(
+            scmJob.getFullName() + "#" + scmSource.getId(),
+            configuration.getScmTriggerQuietPeriodMs(),
+            configuration.getScmTriggerMaxWaitMs(),
+            () -> {
               try (ACLContext acl = ACL.as(ACL.SYSTEM)) {
-                List<WorkflowMultiBranchProject> jenkinsItems =
-                    getJenkinsInstance().getAllItems(WorkflowMultiBranchProject.class);
-                logger.atInfo().log("Scanning %d Jenkins items", jenkinsItems.size());
-                for (SCMSourceOwner scmJob : jenkinsItems) {
-                  logger.atInfo().log("Scanning job " + scmJob);
-                  List<SCMSource> scmSources = scmJob.getSCMSources();
-                  for (SCMSource scmSource : scmSources) {
-                    if (triggerSCMBuildForSource(scmSource, projectFromEvent)) {
-                      logger.atInfo().log(
-                          "Triggering build for project %s, SCM id %s",
-                          projectFromEvent, scmSource.getId());
-                      scmJob.onSCMSourceUpdated(scmSource);
-                    } else {
-                      logger.atFine().log(
-                          "No build to trigger for project %s, SCM id %s",
-                          projectFromEvent, scmSource.getId());
-                    }
-                  }
-                }
+                logger.atInfo().log(
+                    "Triggering build for project %s, SCM id %s",
+                    projectFromEvent, scmSource.getId());
+                scmJob.onSCMSourceUpdated(scmSource);
+                metrics.scansTriggered.inc();
               }
             });
+    if (!fired) {
+      metrics.triggersCoalesced.inc();
+      logger.atFine().log(
+          "Coalescing build trigger for project %s, SCM id %s",
+          projectFromEvent, scmSource.getId());
+    }
   }
 
   @VisibleForTesting
@@ -80,19 +160,67 @@ public class AWSKinesisStreamListenerImpl extends AWSKinesisStreamListener {
 
   @VisibleForTesting
   public Optional<String> getProjectFromEvent(String streamName, String jsonPayload) {
+    return getProjectFromEvent(
+        streamName, extractor -> extractor.extract(jsonPayload), () -> jsonPayload);
+  }
+
+  @VisibleForTesting
+  public Optional<String> getProjectFromRecord(String streamName, AWSKinesisRecord record) {
+    return getProjectFromEvent(
+        streamName, extractor -> extractor.extract(record.getData()), record::getJsonPayload);
+  }
+
+  /**
+   * Extract the project name with the streaming extractor of the configured JSON Path when it is
+   * simple enough, or by parsing the whole payload otherwise
+   */
+  private Optional<String> getProjectFromEvent(
+      String streamName, StreamingExtraction streaming, Supplier<String> jsonPayload) {
     return getProjectField(streamName)
         .flatMap(
             projectField -> {
+              long start = System.nanoTime();
               try {
-                return Optional.of(JsonPath.read(jsonPayload, projectField));
-              } catch (PathNotFoundException pnfe) {
-                logger.atFine().withCause(pnfe).log("Invalid Json Path expression");
+                Optional<StreamingJsonFieldExtractor> extractor =
+                    extractors.computeIfAbsent(
+                        projectField.getPath(),
+                        path -> Optional.ofNullable(StreamingJsonFieldExtractor.compile(path)));
+                if (extractor.isPresent()) {
+                  return Optional.ofNullable(streaming.extract(extractor.get()));
+                }
+                return Optional.ofNullable(
+                    scalarText(PARSE_CONTEXT.parse(jsonPayload.get()).read(projectField)));
+              } catch (JsonPathException | IOException e) {
+                logger.atFine().withCause(e).log("Could not extract project from payload");
+              } finally {
+                getStreamMetrics(streamName)
+                    .jsonPathExtractionMs
+                    .record((System.nanoTime() - start) / 1e6);
               }
               return Optional.empty();
             });
   }
 
-  private Optional<String> getProjectField(String streamName) {
+  /**
+   * Get the text of a value read by a JSON Path, like the {@link StreamingJsonFieldExtractor} does,
+   * so that a project name is extracted the same way whichever path evaluates it
+   *
+   * @param value the value read
+   * @return the text of the value, or null if it is missing or not a scalar value
+   */
+  private static String scalarText(Object value) {
+    return value instanceof String || value instanceof Number || value instanceof Boolean
+        ? value.toString()
+        : null;
+  }
+
+  /** Evaluation of a streaming extractor on the payload of an event */
+  @FunctionalInterface
+  private interface StreamingExtraction {
+    String extract(StreamingJsonFieldExtractor extractor) throws IOException;
+  }
+
+  private Optional<JsonPath> getProjectField(String streamName) {
     GlobalKinesisConfiguration globalKinesisConfiguration = GlobalKinesisConfiguration.get();
 
     KinesisStreamItem kinesisStreamItem =
@@ -102,7 +230,37 @@ public class AWSKinesisStreamListenerImpl extends AWSKinesisStreamListener {
       return Optional.empty();
     }
 
-    return Optional.of(kinesisStreamItem.getProjectNameJsonPath());
+    return Optional.ofNullable(kinesisStreamItem.getCompiledProjectNameJsonPath());
+  }
+
+  private StreamMetrics getStreamMetrics(String streamName) {
+    return metricsByStream.computeIfAbsent(streamName, StreamMetrics::new);
+  }
+
+  /** Metrics of a stream, resolved once rather than for each record */
+  private static class StreamMetrics {
+    private final Histogram jsonPathExtractionMs;
+    private final Histogram scmLookupMs;
+    private final Counter scansTriggered;
+    private final Counter triggersCoalesced;
+
+    StreamMetrics(String streamName) {
+      MetricsRegistry registry = MetricsRegistry.get();
+      this.jsonPathExtractionMs =
+          registry.histogram("kinesis_jsonpath_extraction_ms", "stream", streamName);
+      this.scmLookupMs = registry.histogram("kinesis_scm_lookup_ms", "stream", streamName);
+      this.scansTriggered = registry.counter("kinesis_scm_scans_triggered", "stream", streamName);
+      this.triggersCoalesced =
+          registry.counter("kinesis_scm_triggers_coalesced", "stream", streamName);
+    }
+  }
+
+  private SCMSourceIndex getSCMSourceIndex() {
+    SCMSourceIndex index = SCMSourceIndex.get();
+    if (index != null) {
+      return index;
+    }
+    throw new IllegalStateException("SCM source index is not available");
   }
 
   private Jenkins getJenkinsInstance() {
@@ -0,0 +1,199 @@
+package io.jenkins.plugins.aws.kinesisconsumer.listeners;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.flogger.FluentLogger;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Item;
+import hudson.model.Saveable;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.SaveableListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import jenkins.model.Jenkins;
+import jenkins.plugins.git.AbstractGitSCMSource;
+import jenkins.scm.api.SCMSource;
+import org.apache.commons.lang3.StringUtils;
+import org.jenkinsci.plugins.workflow.multibranch.WorkflowMultiBranchProject;
+
+/**
+ * In-memory index of the {@link WorkflowMultiBranchProject} jobs keyed by the repository name of
+ * their git {@link SCMSource}s.
+ *
+ * <p>The repository name is the last path segment of the remote URL, without the <i>.git</i>
+ * suffix, so that a project extracted from a Kinesis event is resolved with a single hash lookup
+ * rather than walking the whole item tree. The index is built when Jenkins has loaded all the items
+ * and is then maintained incrementally on item creation, update, move and deletion, as well as when
+ * a multibranch project is saved programmatically.
+ *
+ * <p>The index is built before the consumers are started on load, as the item listeners are
+ * notified by decreasing ordinal, so that no record is matched against an empty index.
+ */
+@Extension(ordinal = 100)
+public class SCMSourceIndex extends ItemListener {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private final Map<String, Set<String>> jobsByRepository = new ConcurrentHashMap<>();
+  private final Map<String, Set<String>> repositoriesByJob = new ConcurrentHashMap<>();
+
+  /**
+   * Gets this extension's instance.
+   *
+   * @return the instance of this extension.
+   */
+  public static SCMSourceIndex get() {
+    return ItemListener.all().get(SCMSourceIndex.class);
+  }
+
+  @Override
+  public void onLoaded() {
+    rebuild();
+  }
+
+  @Override
+  public void onCreated(Item item) {
+    index(item);
+  }
+
+  @Override
+  public void onCopied(Item src, Item item) {
+    index(item);
+  }
+
+  @Override
+  public void onUpdated(Item item) {
+    index(item);
+  }
+
+  @Override
+  public void onDeleted(Item item) {
+    remove(item.getFullName());
+  }
+
+  /**
+   * Fired for renames and moves of the item and of each of its descendants, hence only the item
+   * itself needs to be re-indexed.
+   */
+  @Override
+  public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+    remove(oldFullName);
+    index(item);
+  }
+
+  /**
+   * Get the full names of the multibranch jobs having at least a git SCM source whose repository
+   * name matches the project extracted from an event.
+   *
+   * @param project project name, optionally prefixed by its namespace, i.e. <i>org/repo</i>
+   * @return a read-only copy of the full names of the candidate jobs
+   */
+  public Set<String> getJobsForProject(String project) {
+    String repository = repositoryKey(project);
+    if (repository == null) {
+      return Collections.emptySet();
+    }
+    Set<String> jobs = jobsByRepository.get(repository);
+    if (jobs == null) {
+      return Collections.emptySet();
+    }
+    return Collections.unmodifiableSet(new HashSet<>(jobs));
+  }
+
+  /** Discard the current index and rebuild it from all the items known to Jenkins */
+  public synchronized void rebuild() {
+    jobsByRepository.clear();
+    repositoriesByJob.clear();
+    try (ACLContext acl = ACL.as(ACL.SYSTEM)) {
+      List<WorkflowMultiBranchProject> jobs =
+          Jenkins.get().getAllItems(WorkflowMultiBranchProject.class);
+      jobs.forEach(this::index);
+      logger.atInfo().log(
+          "Indexed %d SCM repositories for %d Jenkins items", jobsByRepository.size(), jobs.size());
+    }
+  }
+
+  @VisibleForTesting
+  synchronized void index(Item item) {
+    if (!(item instanceof WorkflowMultiBranchProject)) {
+      return;
+    }
+    String jobName = item.getFullName();
+    remove(jobName);
+
+    Set<String> repositories =
+        ((WorkflowMultiBranchProject) item)
+            .getSCMSources().stream()
+                .filter(AbstractGitSCMSource.class::isInstance)
+                .map(source -> repositoryKey(((AbstractGitSCMSource) source).getRemote()))
+                .filter(StringUtils::isNotEmpty)
+                .collect(Collectors.toCollection(HashSet::new));
+    if (repositories.isEmpty()) {
+      return;
+    }
+
+    repositoriesByJob.put(jobName, repositories);
+    repositories.forEach(
+        repository ->
+            jobsByRepository
+                .computeIfAbsent(repository, r -> ConcurrentHashMap.newKeySet())
+                .add(jobName));
+    logger.atFine().log("Indexed job %s for repositories %s", jobName, repositories);
+  }
+
+  private synchronized void remove(String jobName) {
+    String folderPrefix = jobName + "/";
+    repositoriesByJob.keySet().stream()
+        .filter(name -> name.equals(jobName) || name.startsWith(folderPrefix))
+        .collect(Collectors.toList())
+        .forEach(
+            name ->
+                repositoriesByJob
+                    .remove(name)
+                    .forEach(
+                        repository ->
+                            jobsByRepository.computeIfPresent(
+                                repository,
+                                (r, jobs) -> {
+                                  jobs.remove(name);
+                                  return jobs.isEmpty() ? null : jobs;
+                                })));
+  }
+
+  /**
+   * Normalize a remote URL, or a project name, to the repository name used as index key.
+   *
+   * @param remote remote URL or project name
+   * @return the last path segment without any <i>.git</i> suffix, or null if not available
+   */
+  static String repositoryKey(String remote) {
+    if (remote == null) {
+      return null;
+    }
+    String path = remote.replaceFirst("\\.git$", "");
+    return path.substring(Math.max(path.lastIndexOf('/'), path.lastIndexOf(':')) + 1);
+  }
+
+  /**
+   * Re-index multibranch projects whose sources are changed and saved programmatically, i.e.
+   * without going through the configuration page.
+   */
+  @Extension
+  public static class ProjectSaveListener extends SaveableListener {
+    @Override
+    public void onChange(Saveable o, XmlFile file) {
+      if (o instanceof WorkflowMultiBranchProject) {
+        SCMSourceIndex index = SCMSourceIndex.get();
+        if (index != null) {
+          index.index((Item) o);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package io.jenkins.plugins.aws.kinesisconsumer.listeners;
+
+import com.google.common.flogger.FluentLogger;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import jenkins.util.Timer;
+
+/**
+ * Coalesces bursts of SCM source update triggers for the same key, i.e. job and SCM source.
+ *
+ * <p>The first trigger of a quiet key fires immediately. Triggers received within the quiet period
+ * of the previous one are collapsed into a single trailing trigger, fired once the key has been
+ * quiet for the quiet period, or at the latest after the max wait since the first collapsed
+ * trigger, so that a continuous stream of events still triggers periodically.
+ */
+class SCMTriggerCoalescer {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private final Supplier<ScheduledExecutorService> executor;
+  private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+  SCMTriggerCoalescer() {
+    this(Timer::get);
+  }
+
+  SCMTriggerCoalescer(Supplier<ScheduledExecutorService> executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Submit a trigger
+   *
+   * @param key the key triggers are coalesced by
+   * @param quietPeriodMs the quiet period, 0 to fire every trigger
+   * @param maxWaitMs the maximum delay of a collapsed trigger
+   * @param trigger the action to fire
+   * @return true if the trigger fired immediately, false if it was coalesced
+   */
+  boolean submit(String key, long quietPeriodMs, long maxWaitMs, Runnable trigger) {
+    if (quietPeriodMs <= 0) {
+      trigger.run();
+      return true;
+    }
+    long now = System.nanoTime();
+    Window window = windows.computeIfAbsent(key, k -> new Window());
+    synchronized (window) {
+      if (window.pending == null
+          && (!window.fired
+              || now - window.lastFireNanos >= TimeUnit.MILLISECONDS.toNanos(quietPeriodMs))) {
+        window.fired = true;
+        window.lastFireNanos = now;
+      } else {
+        if (window.pending == null) {
+          window.firstPendingNanos = now;
+        }
+        window.pending = trigger;
+        if (window.flush != null) {
+          window.flush.cancel(false);
+        }
+        long deadline =
+            Math.min(
+                now + TimeUnit.MILLISECONDS.toNanos(quietPeriodMs),
+                window.firstPendingNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMs)));
+        window.flush =
+            executor
+                .get()
+                .schedule(
+                    () -> flush(key, window),
+                    Math.max(0, deadline - now),
+                    TimeUnit.NANOSECONDS);
+        return false;
+      }
+    }
+    trigger.run();
+    return true;
+  }
+
+  private void flush(String key, Window window) {
+    Runnable trigger;
+    synchronized (window) {
+      trigger = window.pending;
+      window.pending = null;
+      window.flush = null;
+      window.lastFireNanos = System.nanoTime();
+    }
+    if (trigger != null) {
+      logger.atFine().log("Firing coalesced SCM trigger for %s", key);
+      try {
+        trigger.run();
+      } catch (Exception e) {
+        logger.atSevere().withCause(e).log("Error firing coalesced SCM trigger for %s", key);
+      }
+    }
+  }
+
+  private static class Window {
+    private boolean fired;
+    private long lastFireNanos;
+    private long firstPendingNanos;
+    private Runnable pending;
+    private ScheduledFuture<?> flush;
+  }
+}
@@ -0,0 +1,170 @@
+package io.jenkins.plugins.aws.kinesisconsumer.listeners;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts a single scalar field from a JSON document with the Jackson streaming parser, skipping
+ * the fields before it and stopping as soon as it is found, rather than parsing the whole document
+ * into a tree.
+ *
+ * <p>Only definite paths made of object fields and array indexes are supported, such as {@code
+ * $.repository.name}, {@code $['repository']['name']} or {@code $.commits[0].id}. Other JSON Path
+ * expressions must be evaluated with {@link com.jayway.jsonpath.JsonPath}.
+ */
+class StreamingJsonFieldExtractor {
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+  private static final Pattern SEGMENT =
+      Pattern.compile(
+          "\\.([A-Za-z_$][\\w$-]*)"
+              + "|\\['([^'\\\\]*)'\\]"
+              + "|\\[\"([^\"\\\\]*)\"\\]"
+              + "|\\[(\\d+)\\]");
+
+  private final List<Object> segments;
+
+  private StreamingJsonFieldExtractor(List<Object> segments) {
+    this.segments = segments;
+  }
+
+  /**
+   * Compile a JSON Path expression, if it is simple enough to be evaluated while streaming
+   *
+   * @param jsonPath the JSON Path expression
+   * @return the extractor, or null if the expression is not supported
+   */
+  static StreamingJsonFieldExtractor compile(String jsonPath) {
+    if (jsonPath == null || !jsonPath.startsWith("$")) {
+      return null;
+    }
+    List<Object> segments = new ArrayList<>();
+    Matcher matcher = SEGMENT.matcher(jsonPath);
+    int position = 1;
+    while (position < jsonPath.length()) {
+      if (!matcher.region(position, jsonPath.length()).lookingAt()) {
+        return null;
+      }
+      if (matcher.group(4) != null) {
+        segments.add(Integer.valueOf(matcher.group(4)));
+      } else {
+        segments.add(
+            matcher.group(1) != null
+                ? matcher.group(1)
+                : matcher.group(2) != null ? matcher.group(2) : matcher.group(3));
+      }
+      position = matcher.end();
+    }
+    return segments.isEmpty()
+        ? null
+        : new StreamingJsonFieldExtractor(Collections.unmodifiableList(segments));
+  }
+
+  /**
+   * Extract the field from JSON data
+   *
+   * @param data the UTF-8 encoded JSON document, which is not modified. Read-only and direct
+   *     buffers are read incrementally, up to the field only.
+   * @return the text of the field, or null if it is missing or not a scalar value
+   * @throws IOException if the document is not valid JSON up to the field
+   */
+  String extract(ByteBuffer data) throws IOException {
+    if (data.hasArray()) {
+      return extract(
+          JSON_FACTORY.createParser(
+              data.array(), data.arrayOffset() + data.position(), data.remaining()));
+    }
+    return extract(JSON_FACTORY.createParser(new ByteBufferInputStream(data.duplicate())));
+  }
+
+  /**
+   * Extract the field from a JSON string
+   *
+   * @param json the JSON document
+   * @return the text of the field, or null if it is missing or not a scalar value
+   * @throws IOException if the document is not valid JSON up to the field
+   */
+  String extract(String json) throws IOException {
+    return extract(JSON_FACTORY.createParser(json));
+  }
+
+  private String extract(JsonParser parser) throws IOException {
+    try (JsonParser p = parser) {
+      JsonToken token = p.nextToken();
+      for (Object segment : segments) {
+        token =
+            segment instanceof Integer
+                ? element(p, token, (Integer) segment)
+                : field(p, token, (String) segment);
+        if (token == null) {
+          return null;
+        }
+      }
+      return token.isScalarValue() && token != JsonToken.VALUE_NULL ? p.getText() : null;
+    }
+  }
+
+  /** Move the parser to the value of a field of the current object */
+  private static JsonToken field(JsonParser p, JsonToken token, String name) throws IOException {
+    if (token != JsonToken.START_OBJECT) {
+      return null;
+    }
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      boolean found = name.equals(p.getCurrentName());
+      JsonToken value = p.nextToken();
+      if (found) {
+        return value;
+      }
+      p.skipChildren();
+    }
+    return null;
+  }
+
+  /** Move the parser to an element of the current array */
+  private static JsonToken element(JsonParser p, JsonToken token, int index) throws IOException {
+    if (token != JsonToken.START_ARRAY) {
+      return null;
+    }
+    JsonToken value = p.nextToken();
+    for (int i = 0; value != null && value != JsonToken.END_ARRAY; i++) {
+      if (i == index) {
+        return value;
+      }
+      p.skipChildren();
+      value = p.nextToken();
+    }
+    return null;
+  }
+
+  /** Reads a buffer, such as the read-only view of the record data, without copying it upfront */
+  private static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+  }
+}
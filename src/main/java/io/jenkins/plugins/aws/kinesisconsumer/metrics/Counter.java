@@ -0,0 +1,22 @@
+package io.jenkins.plugins.aws.kinesisconsumer.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter, cheap to increment from many threads
+ */
+public final class Counter {
+  private final LongAdder count = new LongAdder();
+
+  public void inc() {
+    count.increment();
+  }
+
+  public void inc(long n) {
+    count.add(n);
+  }
+
+  public long get() {
+    return count.sum();
+  }
+}
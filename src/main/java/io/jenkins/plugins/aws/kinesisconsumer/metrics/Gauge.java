@@ -0,0 +1,18 @@
+package io.jenkins.plugins.aws.kinesisconsumer.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last observed value of a quantity, i.e. how far a shard is behind the tip of the stream
+ */
+public final class Gauge {
+  private final AtomicLong value = new AtomicLong();
+
+  public void set(long newValue) {
+    value.set(newValue);
+  }
+
+  public long get() {
+    return value.get();
+  }
+}
@@ -0,0 +1,94 @@
+package io.jenkins.plugins.aws.kinesisconsumer.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of values, recorded in power of two buckets. Recording is lock free and allocation
+ * free; percentiles are approximated by the upper bound of the bucket they fall in.
+ */
+public final class Histogram {
+  private static final int BUCKETS = 64;
+
+  private final LongAdder count = new LongAdder();
+  private final DoubleAdder sum = new DoubleAdder();
+  private final DoubleAccumulator min = new DoubleAccumulator(Math::min, Double.MAX_VALUE);
+  private final DoubleAccumulator max = new DoubleAccumulator(Math::max, -Double.MAX_VALUE);
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+  /**
+   * Record a value
+   *
+   * @param value the value, i.e. a duration in milliseconds
+   */
+  public void record(double value) {
+    count.increment();
+    sum.add(value);
+    min.accumulate(value);
+    max.accumulate(value);
+    buckets.incrementAndGet(bucket(value));
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public double getSum() {
+    return sum.sum();
+  }
+
+  public double getMin() {
+    return getCount() == 0 ? 0 : min.get();
+  }
+
+  public double getMax() {
+    return getCount() == 0 ? 0 : max.get();
+  }
+
+  public double getMean() {
+    long n = getCount();
+    return n == 0 ? 0 : getSum() / n;
+  }
+
+  /**
+   * Get an approximation of a percentile of the recorded values
+   *
+   * @param quantile the quantile, between 0 and 1
+   * @return the upper bound of the bucket the percentile falls in, capped by the maximum value
+   */
+  public double getPercentile(double quantile) {
+    long total = 0;
+    long[] snapshot = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = buckets.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(quantile * total);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank && snapshot[i] > 0) {
+        return Math.min(upperBound(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  /** Bucket 0 holds values up to 1, bucket i values in (2^(i-1), 2^i] */
+  private static int bucket(double value) {
+    if (value <= 1) {
+      return 0;
+    }
+    long ceil = (long) Math.ceil(Math.min(value, Long.MAX_VALUE / 2));
+    return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(ceil - 1));
+  }
+
+  private static double upperBound(int bucket) {
+    return Math.pow(2, bucket);
+  }
+}
@@ -0,0 +1,87 @@
+package io.jenkins.plugins.aws.kinesisconsumer.metrics;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.ManagementLink;
+import java.io.IOException;
+import java.util.List;
+import java.util.SortedMap;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * Jenkins management page showing how far behind the tip of their stream the shards are consumed,
+ * as recorded in the {@link ShardLagRegistry}
+ */
+@Extension
+public class KinesisConsumerLagLink extends ManagementLink {
+  private static final char[] SPARKS = "▁▂▃▄▅▆▇█".toCharArray();
+
+  @Override
+  public String getIconFileName() {
+    return "clock.png";
+  }
+
+  @Override
+  public String getDisplayName() {
+    return "AWS Kinesis Consumer Lag";
+  }
+
+  @Override
+  public String getDescription() {
+    return "How far behind the AWS Kinesis streams are consumed.";
+  }
+
+  @Override
+  public String getUrlName() {
+    return "aws-kinesis-consumer-lag";
+  }
+
+  public SortedMap<String, Long> getStreams() {
+    return ShardLagRegistry.get().getStreams();
+  }
+
+  public List<ShardLag> getShards() {
+    return ShardLagRegistry.get().getShards();
+  }
+
+  /**
+   * Serve the lag of all the streams and shards, with their history, as JSON
+   *
+   * @param rsp the response
+   * @throws IOException if the response cannot be written
+   */
+  public void doJson(StaplerResponse rsp) throws IOException {
+    Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+    rsp.setContentType("application/json;charset=UTF-8");
+    rsp.getWriter().print(MetricsFormat.json(ShardLagRegistry.get()).toString());
+  }
+
+  public String formatLag(long millisBehindLatest) {
+    return millisBehindLatest < 0 ? "N/A" : Util.getTimeSpanString(millisBehindLatest);
+  }
+
+  public String formatAge(long timestampMs) {
+    return timestampMs == 0
+        ? "N/A"
+        : Util.getTimeSpanString(System.currentTimeMillis() - timestampMs);
+  }
+
+  /**
+   * Render the history of the lag of a shard as a text sparkline, one character per minute
+   *
+   * @param shard the shard
+   * @return the sparkline, scaled to the maximum lag of the history
+   */
+  public String sparkline(ShardLag shard) {
+    List<ShardLag.Sample> history = shard.getHistory();
+    long max = history.stream().mapToLong(ShardLag.Sample::getMillisBehindLatest).max().orElse(0);
+    StringBuilder sparkline = new StringBuilder(history.size());
+    for (ShardLag.Sample sample : history) {
+      int level =
+          max == 0 ? 0 : (int) (sample.getMillisBehindLatest() * (SPARKS.length - 1) / max);
+      sparkline.append(SPARKS[level]);
+    }
+    return sparkline.toString();
+  }
+}
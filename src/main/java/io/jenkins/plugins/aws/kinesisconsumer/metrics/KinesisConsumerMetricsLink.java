@@ -0,0 +1,79 @@
+package io.jenkins.plugins.aws.kinesisconsumer.metrics;
+
+import hudson.Extension;
+import hudson.model.ManagementLink;
+import java.io.IOException;
+import java.util.SortedMap;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * Jenkins management page showing the metrics recorded in the {@link MetricsRegistry}
+ */
+@Extension
+public class KinesisConsumerMetricsLink extends ManagementLink {
+
+  @Override
+  public String getIconFileName() {
+    return "graph.png";
+  }
+
+  @Override
+  public String getDisplayName() {
+    return "AWS Kinesis Consumer Metrics";
+  }
+
+  @Override
+  public String getDescription() {
+    return "Metrics of the AWS Kinesis consumers.";
+  }
+
+  @Override
+  public String getUrlName() {
+    return "aws-kinesis-consumer-metrics";
+  }
+
+  public SortedMap<MetricKey, Counter> getCounters() {
+    return MetricsRegistry.get().getCounters();
+  }
+
+  public SortedMap<MetricKey, Histogram> getHistograms() {
+    return MetricsRegistry.get().getHistograms();
+  }
+
+  public SortedMap<MetricKey, Meter> getMeters() {
+    return MetricsRegistry.get().getMeters();
+  }
+
+  public SortedMap<MetricKey, Gauge> getGauges() {
+    return MetricsRegistry.get().getGauges();
+  }
+
+  /**
+   * Serve all the metrics as JSON
+   *
+   * @param rsp the response
+   * @throws IOException if the response cannot be written
+   */
+  public void doJson(StaplerResponse rsp) throws IOException {
+    Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+    rsp.setContentType("application/json;charset=UTF-8");
+    rsp.getWriter().print(MetricsFormat.json(MetricsRegistry.get()).toString());
+  }
+
+  /**
+   * Serve all the metrics in the Prometheus text exposition format
+   *
+   * @param rsp the response
+   * @throws IOException if the response cannot be written
+   */
+  public void doPrometheus(StaplerResponse rsp) throws IOException {
+    Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+    rsp.setContentType("text/plain;version=0.0.4;charset=UTF-8");
+    rsp.getWriter().print(MetricsFormat.prometheus(MetricsRegistry.get()));
+  }
+
+  public String format(double value) {
+    return String.format("%.2f", value);
+  }
+}
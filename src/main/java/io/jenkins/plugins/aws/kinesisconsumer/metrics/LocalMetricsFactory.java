@@ -0,0 +1,86 @@
+package io.jenkins.plugins.aws.kinesisconsumer.metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+import software.amazon.kinesis.metrics.MetricsFactory;
+import software.amazon.kinesis.metrics.MetricsLevel;
+import software.amazon.kinesis.metrics.MetricsScope;
+
+/**
+ * KCL {@link MetricsFactory} aggregating the scheduler metrics into the in-process {@link
+ * MetricsRegistry}, instead of publishing them to CloudWatch. Each metric is recorded as a
+ * histogram named {@code kcl_<MetricName>}, labelled with its enabled dimensions.
+ */
+public class LocalMetricsFactory implements MetricsFactory {
+  /** Dimension name enabling all the dimensions, as in the KCL configuration */
+  public static final String ALL_DIMENSIONS = "ALL";
+
+  private final MetricsRegistry registry;
+  private final MetricsLevel metricsLevel;
+  private final Set<String> enabledDimensions;
+
+  /**
+   * Creates LocalMetricsFactory instance.
+   *
+   * @param registry the registry to record the metrics into
+   * @param metricsLevel the minimum level of the recorded metrics
+   * @param enabledDimensions the dimensions to keep as labels
+   */
+  public LocalMetricsFactory(
+      MetricsRegistry registry, MetricsLevel metricsLevel, Set<String> enabledDimensions) {
+    this.registry = registry;
+    this.metricsLevel = metricsLevel;
+    this.enabledDimensions = enabledDimensions;
+  }
+
+  @Override
+  public MetricsScope createMetrics() {
+    return new LocalMetricsScope();
+  }
+
+  private class LocalMetricsScope implements MetricsScope {
+    private final Map<String, String> dimensions = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<Double> values = new ArrayList<>();
+    private boolean ended;
+
+    @Override
+    public void addData(String name, double value, StandardUnit unit) {
+      addData(name, value, unit, MetricsLevel.DETAILED);
+    }
+
+    @Override
+    public void addData(String name, double value, StandardUnit unit, MetricsLevel level) {
+      if (ended
+          || metricsLevel == MetricsLevel.NONE
+          || level.getValue() < metricsLevel.getValue()) {
+        return;
+      }
+      names.add(name);
+      values.add(value);
+    }
+
+    @Override
+    public void addDimension(String name, String value) {
+      if (!ended
+          && (enabledDimensions.contains(ALL_DIMENSIONS) || enabledDimensions.contains(name))) {
+        dimensions.put(name, value);
+      }
+    }
+
+    @Override
+    public void end() {
+      if (ended) {
+        return;
+      }
+      ended = true;
+      for (int i = 0; i < names.size(); i++) {
+        registry.histogram(new MetricKey("kcl_" + names.get(i), dimensions)).record(values.get(i));
+      }
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package io.jenkins.plugins.aws.kinesisconsumer.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counter also tracking its rate per second, as an exponentially weighted moving average over one
+ * minute. The average is updated lazily, every 5 seconds, by the first thread marking or reading
+ * the meter.
+ */
+public final class Meter {
+  private static final int TICK_SECONDS = 5;
+  private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(TICK_SECONDS);
+  private static final double ALPHA = 1 - Math.exp(-TICK_SECONDS / 60.0);
+
+  private final LongAdder count = new LongAdder();
+  private final LongAdder uncounted = new LongAdder();
+  private final AtomicLong lastTick = new AtomicLong(System.nanoTime());
+  private volatile double rate = -1;
+
+  public void mark(long n) {
+    tickIfNecessary();
+    count.add(n);
+    uncounted.add(n);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Get the one minute moving average rate
+   *
+   * @return events per second
+   */
+  public double getOneMinuteRate() {
+    tickIfNecessary();
+    return Math.max(0, rate);
+  }
+
+  private void tickIfNecessary() {
+    long oldTick = lastTick.get();
+    long now = System.nanoTime();
+    long age = now - oldTick;
+    if (age > TICK_NANOS && lastTick.compareAndSet(oldTick, now - age % TICK_NANOS)) {
+      for (long i = age / TICK_NANOS; i > 0; i--) {
+        double instantRate = (double) uncounted.sumThenReset() / TICK_SECONDS;
+        rate = rate < 0 ? instantRate : rate + ALPHA * (instantRate - rate);
+      }
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package io.jenkins.plugins.aws.kinesisconsumer.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Identifier of a metric: a name and a set of labels, i.e. stream and shard
+ */
+public final class MetricKey implements Comparable<MetricKey> {
+  private final String name;
+  private final SortedMap<String, String> labels;
+
+  /**
+   * Creates MetricKey instance.
+   *
+   * @param name the metric name
+   * @param labels the labels of the metric, as alternate names and values
+   */
+  public MetricKey(String name, String... labels) {
+    if (labels.length % 2 != 0) {
+      throw new IllegalArgumentException("Labels must be name/value pairs: " + name);
+    }
+    SortedMap<String, String> labelsMap = new TreeMap<>();
+    for (int i = 0; i < labels.length; i += 2) {
+      labelsMap.put(labels[i], labels[i + 1]);
+    }
+    this.name = name;
+    this.labels = Collections.unmodifiableSortedMap(labelsMap);
+  }
+
+  MetricKey(String name, Map<String, String> labels) {
+    this.name = name;
+    this.labels = Collections.unmodifiableSortedMap(new TreeMap<>(labels));
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public SortedMap<String, String> getLabels() {
+    return labels;
+  }
+
+  @Override
+  public int compareTo(MetricKey o) {
+    return toString().compareTo(o.toString());
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    MetricKey that = (MetricKey) o;
+    return name.equals(that.name) && labels.equals(that.labels);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(name, labels);
+  }
+
+  /**
+   * Format the key as in the Prometheus exposition format, i.e. {@code name{stream="s"}}
+   *
+   * @return the formatted key
+   */
+  @Override
+  public String toString() {
+    if (labels.isEmpty()) {
+      return name;
+    }
+    return labels.entrySet().stream()
+        .map(e -> String.format("%s=\"%s\"", e.getKey(), escape(e.getValue())))
+        .collect(Collectors.joining(",", name + "{", "}"));
+  }
+
+  private static String escape(String value) {
+    return String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+}
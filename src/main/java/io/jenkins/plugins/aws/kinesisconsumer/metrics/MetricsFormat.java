@@ -0,0 +1,158 @@
+package io.jenkins.plugins.aws.kinesisconsumer.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * Serialization of the {@link MetricsRegistry} content, as JSON or in the Prometheus text
+ * exposition format, and of the {@link ShardLagRegistry} content as JSON
+ */
+final class MetricsFormat {
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+  private MetricsFormat() {}
+
+  static JSONObject json(MetricsRegistry registry) {
+    JSONArray counters = new JSONArray();
+    registry.getCounters().forEach((k, c) -> counters.add(metric(k).element("value", c.get())));
+    JSONArray gauges = new JSONArray();
+    registry.getGauges().forEach((k, g) -> gauges.add(metric(k).element("value", g.get())));
+    JSONArray meters = new JSONArray();
+    registry
+        .getMeters()
+        .forEach(
+            (k, m) ->
+                meters.add(
+                    metric(k)
+                        .element("count", m.getCount())
+                        .element("oneMinuteRate", m.getOneMinuteRate())));
+    JSONArray histograms = new JSONArray();
+    registry
+        .getHistograms()
+        .forEach(
+            (k, h) ->
+                histograms.add(
+                    metric(k)
+                        .element("count", h.getCount())
+                        .element("sum", h.getSum())
+                        .element("min", h.getMin())
+                        .element("mean", h.getMean())
+                        .element("p50", h.getPercentile(0.5))
+                        .element("p90", h.getPercentile(0.9))
+                        .element("p99", h.getPercentile(0.99))
+                        .element("max", h.getMax())));
+    return new JSONObject()
+        .element("counters", counters)
+        .element("gauges", gauges)
+        .element("meters", meters)
+        .element("histograms", histograms);
+  }
+
+  static JSONObject json(ShardLagRegistry registry) {
+    JSONArray streams = new JSONArray();
+    registry
+        .getStreams()
+        .forEach(
+            (name, lag) ->
+                streams.add(
+                    new JSONObject().element("stream", name).element("millisBehindLatest", lag)));
+    JSONArray shards = new JSONArray();
+    for (ShardLag shard : registry.getShards()) {
+      JSONArray history = new JSONArray();
+      shard
+          .getHistory()
+          .forEach(
+              sample ->
+                  history.add(
+                      new JSONObject()
+                          .element("timestampMs", sample.getTimestampMs())
+                          .element("millisBehindLatest", sample.getMillisBehindLatest())));
+      shards.add(
+          new JSONObject()
+              .element("stream", shard.getStreamName())
+              .element("shard", shard.getShardId())
+              .element("millisBehindLatest", shard.getMillisBehindLatest())
+              .element("lastSequenceNumber", shard.getLastSequenceNumber())
+              .element(
+                  "lastArrival",
+                  shard.getLastArrival() == null ? null : shard.getLastArrival().toString())
+              .element("recordsSinceCheckpoint", shard.getRecordsSinceCheckpoint())
+              .element("updatedAtMs", shard.getUpdatedAtMs())
+              .element("history", history));
+    }
+    return new JSONObject().element("streams", streams).element("shards", shards);
+  }
+
+  static String prometheus(MetricsRegistry registry) {
+    StringBuilder out = new StringBuilder();
+    String type = null;
+    for (Map.Entry<MetricKey, Counter> e : registry.getCounters().entrySet()) {
+      type = header(out, type, name(e.getKey()), "counter");
+      sample(out, name(e.getKey()), e.getKey(), null, e.getValue().get());
+    }
+    for (Map.Entry<MetricKey, Gauge> e : registry.getGauges().entrySet()) {
+      type = header(out, type, name(e.getKey()), "gauge");
+      sample(out, name(e.getKey()), e.getKey(), null, e.getValue().get());
+    }
+    for (Map.Entry<MetricKey, Meter> e : registry.getMeters().entrySet()) {
+      type = header(out, type, name(e.getKey()) + "_total", "counter");
+      sample(out, name(e.getKey()) + "_total", e.getKey(), null, e.getValue().getCount());
+    }
+    for (Map.Entry<MetricKey, Meter> e : registry.getMeters().entrySet()) {
+      type = header(out, type, name(e.getKey()) + "_rate", "gauge");
+      sample(out, name(e.getKey()) + "_rate", e.getKey(), null, e.getValue().getOneMinuteRate());
+    }
+    for (Map.Entry<MetricKey, Histogram> e : registry.getHistograms().entrySet()) {
+      String name = name(e.getKey());
+      Histogram histogram = e.getValue();
+      type = header(out, type, name, "summary");
+      for (double quantile : QUANTILES) {
+        sample(out, name, e.getKey(), quantile, histogram.getPercentile(quantile));
+      }
+      sample(out, name + "_sum", e.getKey(), null, histogram.getSum());
+      sample(out, name + "_count", e.getKey(), null, histogram.getCount());
+    }
+    return out.toString();
+  }
+
+  private static JSONObject metric(MetricKey key) {
+    return new JSONObject().element("name", key.getName()).element("labels", key.getLabels());
+  }
+
+  /** Write the TYPE line once for all the samples of the same metric, which are sorted by key */
+  private static String header(StringBuilder out, String previous, String name, String type) {
+    String current = name + " " + type;
+    if (!current.equals(previous)) {
+      out.append("# TYPE ").append(current).append('\n');
+    }
+    return current;
+  }
+
+  private static void sample(
+      StringBuilder out, String name, MetricKey key, Double quantile, double value) {
+    MetricKey sampleKey =
+        quantile == null
+            ? new MetricKey(name, key.getLabels())
+            : new MetricKey(name, withQuantile(key.getLabels(), quantile));
+    out.append(sampleKey).append(' ').append(format(value)).append('\n');
+  }
+
+  private static Map<String, String> withQuantile(Map<String, String> labels, double quantile) {
+    Map<String, String> result = new TreeMap<>(labels);
+    result.put("quantile", String.valueOf(quantile));
+    return result;
+  }
+
+  private static String name(MetricKey key) {
+    return key.getName().replaceAll("[^a-zA-Z0-9_:]", "_");
+  }
+
+  private static String format(double value) {
+    return value == Math.rint(value) && !Double.isInfinite(value)
+        ? String.valueOf((long) value)
+        : String.format(Locale.ROOT, "%.3f", value);
+  }
+}
@@ -0,0 +1,141 @@
+package io.jenkins.plugins.aws.kinesisconsumer.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * In-process registry of the metrics of the consumer, kept in memory only and exposed by the {@link
+ * KinesisConsumerMetricsLink} page
+ */
+public final class MetricsRegistry {
+  private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+  private final ConcurrentMap<MetricKey, Counter> counters = new ConcurrentHashMap<>();
+  private final ConcurrentMap<MetricKey, Histogram> histograms = new ConcurrentHashMap<>();
+  private final ConcurrentMap<MetricKey, Meter> meters = new ConcurrentHashMap<>();
+  private final ConcurrentMap<MetricKey, Gauge> gauges = new ConcurrentHashMap<>();
+
+  MetricsRegistry() {}
+
+  /**
+   * Get the registry of the consumer metrics
+   *
+   * @return the registry
+   */
+  public static MetricsRegistry get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Get or create a counter
+   *
+   * @param name the metric name
+   * @param labels the labels of the metric, as alternate names and values
+   * @return the counter
+   */
+  public Counter counter(String name, String... labels) {
+    return counters.computeIfAbsent(new MetricKey(name, labels), k -> new Counter());
+  }
+
+  /**
+   * Get or create a histogram
+   *
+   * @param name the metric name
+   * @param labels the labels of the metric, as alternate names and values
+   * @return the histogram
+   */
+  public Histogram histogram(String name, String... labels) {
+    return histogram(new MetricKey(name, labels));
+  }
+
+  Histogram histogram(MetricKey key) {
+    return histograms.computeIfAbsent(key, k -> new Histogram());
+  }
+
+  /**
+   * Get or create a meter
+   *
+   * @param name the metric name
+   * @param labels the labels of the metric, as alternate names and values
+   * @return the meter
+   */
+  public Meter meter(String name, String... labels) {
+    return meters.computeIfAbsent(new MetricKey(name, labels), k -> new Meter());
+  }
+
+  /**
+   * Get or create a gauge
+   *
+   * @param name the metric name
+   * @param labels the labels of the metric, as alternate names and values
+   * @return the gauge
+   */
+  public Gauge gauge(String name, String... labels) {
+    return gauges.computeIfAbsent(new MetricKey(name, labels), k -> new Gauge());
+  }
+
+  /**
+   * Get all the counters, sorted by key
+   *
+   * @return the counters
+   */
+  public SortedMap<MetricKey, Counter> getCounters() {
+    return Collections.unmodifiableSortedMap(new TreeMap<>(counters));
+  }
+
+  /**
+   * Get all the histograms, sorted by key
+   *
+   * @return the histograms
+   */
+  public SortedMap<MetricKey, Histogram> getHistograms() {
+    return Collections.unmodifiableSortedMap(new TreeMap<>(histograms));
+  }
+
+  /**
+   * Get all the meters, sorted by key
+   *
+   * @return the meters
+   */
+  public SortedMap<MetricKey, Meter> getMeters() {
+    return Collections.unmodifiableSortedMap(new TreeMap<>(meters));
+  }
+
+  /**
+   * Get all the gauges, sorted by key
+   *
+   * @return the gauges
+   */
+  public SortedMap<MetricKey, Gauge> getGauges() {
+    return Collections.unmodifiableSortedMap(new TreeMap<>(gauges));
+  }
+
+  /**
+   * Remove the metrics having all the given labels, i.e. the metrics of a shard no longer consumed,
+   * so that their last values are not exported anymore
+   *
+   * @param labels the labels of the metrics to remove, as alternate names and values
+   */
+  public void remove(String... labels) {
+    Map<String, String> removed = new MetricKey("", labels).getLabels();
+    Predicate<MetricKey> matching =
+        key -> key.getLabels().entrySet().containsAll(removed.entrySet());
+    counters.keySet().removeIf(matching);
+    histograms.keySet().removeIf(matching);
+    meters.keySet().removeIf(matching);
+    gauges.keySet().removeIf(matching);
+  }
+
+  /** Remove all the metrics */
+  public void clear() {
+    counters.clear();
+    histograms.clear();
+    meters.clear();
+    gauges.clear();
+  }
+}
@@ -0,0 +1,172 @@
+package io.jenkins.plugins.aws.kinesisconsumer.metrics;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How far behind the tip of its stream a shard is being consumed, along with a short history of
+ * the lag: the maximum lag of each minute of the last hour.
+ */
+public final class ShardLag {
+  static final long HISTORY_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+  static final int HISTORY_SIZE = 60;
+
+  private final String streamName;
+  private final String shardId;
+  private final Deque<Sample> history = new ArrayDeque<>(HISTORY_SIZE);
+  private long millisBehindLatest = -1;
+  private String lastSequenceNumber;
+  private Instant lastArrival;
+  private long recordsSinceCheckpoint;
+  private long updatedAtMs;
+  private long intervalStartMs;
+  private long intervalMaxMillisBehindLatest = -1;
+
+  ShardLag(String streamName, String shardId) {
+    this.streamName = streamName;
+    this.shardId = shardId;
+    this.updatedAtMs = System.currentTimeMillis();
+  }
+
+  /**
+   * Record the position of the shard after a batch of records has been delivered to the listeners
+   *
+   * @param nowMs the current time, in milliseconds since the epoch
+   * @param millisBehindLatest how far the batch is behind the tip of the stream, -1 if unknown
+   * @param lastSequenceNumber the sequence number of the last record delivered, null to keep the
+   *     previous one when the batch is empty
+   * @param lastArrival when the last record delivered was added to the stream, null if unknown
+   */
+  public synchronized void update(
+      long nowMs, long millisBehindLatest, String lastSequenceNumber, Instant lastArrival) {
+    if (lastSequenceNumber != null) {
+      this.lastSequenceNumber = lastSequenceNumber;
+      this.lastArrival = lastArrival;
+    }
+    this.millisBehindLatest = millisBehindLatest;
+    this.updatedAtMs = nowMs;
+    if (nowMs - intervalStartMs >= HISTORY_INTERVAL_MS) {
+      if (intervalMaxMillisBehindLatest >= 0) {
+        if (history.size() == HISTORY_SIZE) {
+          history.removeFirst();
+        }
+        history.addLast(new Sample(intervalStartMs, intervalMaxMillisBehindLatest));
+      }
+      intervalStartMs = nowMs;
+      intervalMaxMillisBehindLatest = -1;
+    }
+    intervalMaxMillisBehindLatest = Math.max(intervalMaxMillisBehindLatest, millisBehindLatest);
+  }
+
+  /**
+   * Record the number of records delivered since the position of the shard was last checkpointed
+   *
+   * @param recordsSinceCheckpoint the number of records
+   */
+  public synchronized void setRecordsSinceCheckpoint(long recordsSinceCheckpoint) {
+    this.recordsSinceCheckpoint = recordsSinceCheckpoint;
+  }
+
+  /**
+   * Tell whether the shard is lagging more than a threshold: either its last batch delivered was
+   * further behind the tip of the stream, or no batch has been delivered for longer, e.g. because a
+   * listener or the consumer is stalled.
+   *
+   * @param thresholdMs the lag threshold in milliseconds
+   * @param nowMs the current time, in milliseconds since the epoch
+   * @return true if the shard is lagging
+   */
+  public synchronized boolean isLagging(long thresholdMs, long nowMs) {
+    return millisBehindLatest > thresholdMs || nowMs - updatedAtMs > thresholdMs;
+  }
+
+  public String getStreamName() {
+    return streamName;
+  }
+
+  public String getShardId() {
+    return shardId;
+  }
+
+  /**
+   * Get how far the last batch delivered was behind the tip of the stream
+   *
+   * @return the lag in milliseconds, or -1 if unknown
+   */
+  public synchronized long getMillisBehindLatest() {
+    return millisBehindLatest;
+  }
+
+  /**
+   * Get the sequence number of the last record delivered
+   *
+   * @return the sequence number, or null if no record was delivered yet
+   */
+  public synchronized String getLastSequenceNumber() {
+    return lastSequenceNumber;
+  }
+
+  /**
+   * Get when the last record delivered was added to the stream
+   *
+   * @return the arrival timestamp, or null if not available
+   */
+  public synchronized Instant getLastArrival() {
+    return lastArrival;
+  }
+
+  /**
+   * Get the number of records delivered since the position of the shard was last checkpointed
+   *
+   * @return the number of records
+   */
+  public synchronized long getRecordsSinceCheckpoint() {
+    return recordsSinceCheckpoint;
+  }
+
+  /**
+   * Get when the lag was last updated, i.e. when the last batch was delivered
+   *
+   * @return the time in milliseconds since the epoch
+   */
+  public synchronized long getUpdatedAtMs() {
+    return updatedAtMs;
+  }
+
+  /**
+   * Get the maximum lag of each minute, oldest first, including the current minute
+   *
+   * @return the history of the lag
+   */
+  public synchronized List<Sample> getHistory() {
+    List<Sample> samples = new ArrayList<>(history.size() + 1);
+    samples.addAll(history);
+    if (intervalMaxMillisBehindLatest >= 0) {
+      samples.add(new Sample(intervalStartMs, intervalMaxMillisBehindLatest));
+    }
+    return samples;
+  }
+
+  /** Maximum lag of a shard within an interval of the history */
+  public static final class Sample {
+    private final long timestampMs;
+    private final long millisBehindLatest;
+
+    Sample(long timestampMs, long millisBehindLatest) {
+      this.timestampMs = timestampMs;
+      this.millisBehindLatest = millisBehindLatest;
+    }
+
+    public long getTimestampMs() {
+      return timestampMs;
+    }
+
+    public long getMillisBehindLatest() {
+      return millisBehindLatest;
+    }
+  }
+}
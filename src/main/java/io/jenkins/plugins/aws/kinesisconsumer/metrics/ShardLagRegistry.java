@@ -0,0 +1,136 @@
+package io.jenkins.plugins.aws.kinesisconsumer.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-process registry of the {@link ShardLag} of the shards currently consumed, exposed by the
+ * {@link KinesisConsumerLagLink} page
+ */
+public final class ShardLagRegistry {
+  private static final ShardLagRegistry INSTANCE = new ShardLagRegistry();
+  private static final Comparator<ShardLag> BY_SHARD =
+      Comparator.comparing(ShardLag::getStreamName).thenComparing(ShardLag::getShardId);
+
+  private final ConcurrentMap<String, ConcurrentMap<String, ShardLag>> shardsByStream =
+      new ConcurrentHashMap<>();
+
+  ShardLagRegistry() {}
+
+  /**
+   * Get the registry of the lag of the shards
+   *
+   * @return the registry
+   */
+  public static ShardLagRegistry get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Get or create the lag of a shard
+   *
+   * @param streamName the stream name
+   * @param shardId the shard id
+   * @return the lag of the shard
+   */
+  public ShardLag shard(String streamName, String shardId) {
+    ShardLag[] lag = new ShardLag[1];
+    // Both levels are updated under the lock of the stream entry, so that a concurrent remove()
+    // of the last shard of the stream cannot drop the shards map the lag is added to
+    shardsByStream.compute(
+        streamName,
+        (s, shards) -> {
+          ConcurrentMap<String, ShardLag> streamShards =
+              shards == null ? new ConcurrentHashMap<>() : shards;
+          lag[0] = streamShards.computeIfAbsent(shardId, id -> new ShardLag(streamName, id));
+          return streamShards;
+        });
+    return lag[0];
+  }
+
+  /**
+   * Get the lag of a shard, without creating it
+   *
+   * @param streamName the stream name
+   * @param shardId the shard id
+   * @return the lag of the shard, empty if the shard is not consumed
+   */
+  public Optional<ShardLag> find(String streamName, String shardId) {
+    Map<String, ShardLag> shards = shardsByStream.get(streamName);
+    return Optional.ofNullable(shards == null ? null : shards.get(shardId));
+  }
+
+  /**
+   * Forget the lag of a shard which is no longer consumed by this Jenkins instance
+   *
+   * @param streamName the stream name
+   * @param shardId the shard id
+   */
+  public void remove(String streamName, String shardId) {
+    shardsByStream.computeIfPresent(
+        streamName,
+        (s, shards) -> {
+          shards.remove(shardId);
+          return shards.isEmpty() ? null : shards;
+        });
+  }
+
+  /**
+   * Get the lag of all the shards, sorted by stream and shard
+   *
+   * @return the lag of the shards
+   */
+  public List<ShardLag> getShards() {
+    List<ShardLag> shards = new ArrayList<>();
+    shardsByStream.values().forEach(s -> shards.addAll(s.values()));
+    shards.sort(BY_SHARD);
+    return shards;
+  }
+
+  /**
+   * Get the lag of each stream, i.e. the lag of its most lagging shard
+   *
+   * @return the lag in milliseconds, keyed by stream name
+   */
+  public SortedMap<String, Long> getStreams() {
+    SortedMap<String, Long> streams = new TreeMap<>();
+    for (Map.Entry<String, ConcurrentMap<String, ShardLag>> e : shardsByStream.entrySet()) {
+      streams.put(
+          e.getKey(),
+          e.getValue().values().stream()
+              .mapToLong(ShardLag::getMillisBehindLatest)
+              .max()
+              .orElse(-1));
+    }
+    return streams;
+  }
+
+  /**
+   * Get the shards lagging more than a threshold, see {@link ShardLag#isLagging(long, long)}
+   *
+   * @param thresholdMs the lag threshold in milliseconds
+   * @return the lagging shards, sorted by stream and shard
+   */
+  public List<ShardLag> getLagging(long thresholdMs) {
+    return getLagging(thresholdMs, System.currentTimeMillis());
+  }
+
+  List<ShardLag> getLagging(long thresholdMs, long nowMs) {
+    return getShards().stream()
+        .filter(s -> s.isLagging(thresholdMs, nowMs))
+        .collect(Collectors.toList());
+  }
+
+  /** Forget the lag of all the shards */
+  public void clear() {
+    shardsByStream.clear();
+  }
+}
@@ -0,0 +1,167 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+import software.amazon.awssdk.services.kinesis.model.GetRecordsRequest;
+import software.amazon.awssdk.services.kinesis.model.GetRecordsResponse;
+import software.amazon.awssdk.services.kinesis.model.GetShardIteratorRequest;
+import software.amazon.awssdk.services.kinesis.model.GetShardIteratorResponse;
+import software.amazon.awssdk.services.kinesis.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.kinesis.model.Record;
+import software.amazon.kinesis.common.InitialPositionInStream;
+import software.amazon.kinesis.common.InitialPositionInStreamExtended;
+import software.amazon.kinesis.metrics.NullMetricsFactory;
+import software.amazon.kinesis.retrieval.GetRecordsRetrievalStrategy;
+
+public class AdaptiveGetRecordsStrategyTest {
+  private static final String SHARD_ID = "shardId-000000000000";
+
+  private final GetRecordsRetrievalStrategy delegate = mock(GetRecordsRetrievalStrategy.class);
+  private final List<Long> sleeps = new ArrayList<>();
+  private final List<Integer> limits = new ArrayList<>();
+  private long now = 1_000_000;
+
+  private final AdaptiveGetRecordsStrategy strategy =
+      new AdaptiveGetRecordsStrategy(
+          "test-stream",
+          SHARD_ID,
+          delegate,
+          limits::add,
+          100,
+          1000,
+          5000,
+          () -> now,
+          millis -> {
+            sleeps.add(millis);
+            now += millis;
+          });
+
+  @Test
+  public void shouldLengthenIdleTimeWhileShardIsEmpty() {
+    when(delegate.getRecords(anyInt())).thenReturn(response(0, 0L));
+
+    IntStream.range(0, 5).forEach(i -> strategy.getRecords(10000));
+
+    assertEquals(Arrays.asList(1000L, 2000L, 4000L, 5000L, 5000L), sleeps);
+    assertEquals(5000, strategy.idleMs());
+  }
+
+  @Test
+  public void shouldResetIdleTimeWhenRecordsAreReturned() {
+    when(delegate.getRecords(anyInt()))
+        .thenReturn(response(0, 0L), response(0, 0L), response(3, 0L));
+
+    IntStream.range(0, 3).forEach(i -> strategy.getRecords(10000));
+
+    assertEquals(1000, strategy.idleMs());
+    assertEquals(100, strategy.maxRecords());
+  }
+
+  @Test
+  public void shouldFetchLargerBatchesBackToBackWhileLagging() {
+    when(delegate.getRecords(anyInt())).thenReturn(response(100, 60000L), response(200, 60000L));
+
+    strategy.getRecords(10000);
+    strategy.getRecords(10000);
+    strategy.getRecords(10000);
+
+    assertEquals(Arrays.asList(100, 200, 400), limits);
+    assertEquals(0, strategy.idleMs());
+    // The first call waits for the idle time, the next ones for the per shard call rate limit only
+    assertEquals(Arrays.asList(1000L, 200L, 200L), sleeps);
+  }
+
+  @Test
+  public void shouldBackOffWhenThrottled() {
+    when(delegate.getRecords(anyInt()))
+        .thenThrow(ProvisionedThroughputExceededException.builder().build());
+
+    assertThrows(ProvisionedThroughputExceededException.class, () -> strategy.getRecords(10000));
+
+    assertEquals(2000, strategy.idleMs());
+    assertEquals(100, strategy.maxRecords());
+  }
+
+  @Test
+  public void shouldNotCallGetRecordsWhenInterruptedWhileWaiting() {
+    AdaptiveGetRecordsStrategy interruptedStrategy =
+        new AdaptiveGetRecordsStrategy(
+            "test-stream",
+            SHARD_ID,
+            delegate,
+            limits::add,
+            100,
+            1000,
+            5000,
+            () -> now,
+            millis -> {
+              throw new InterruptedException();
+            });
+
+    try {
+      assertThrows(AbortedException.class, () -> interruptedStrategy.getRecords(10000));
+      assertTrue(Thread.currentThread().isInterrupted());
+    } finally {
+      Thread.interrupted();
+    }
+    verify(delegate, never()).getRecords(anyInt());
+  }
+
+  @Test
+  public void shouldApplyTheAdaptiveMaxRecordsToTheKclDataFetcher() {
+    KinesisAsyncClient kinesisClient = mock(KinesisAsyncClient.class);
+    when(kinesisClient.getShardIterator(any(GetShardIteratorRequest.class)))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                GetShardIteratorResponse.builder().shardIterator("iterator").build()));
+    when(kinesisClient.getRecords(any(GetRecordsRequest.class)))
+        .thenReturn(CompletableFuture.completedFuture(response(100, 60000L)));
+    AdaptiveKinesisDataFetcher dataFetcher =
+        new AdaptiveKinesisDataFetcher(
+            kinesisClient, "test-stream", SHARD_ID, 100, new NullMetricsFactory());
+    dataFetcher.initialize(
+        InitialPositionInStream.TRIM_HORIZON.toString(),
+        InitialPositionInStreamExtended.newInitialPosition(InitialPositionInStream.TRIM_HORIZON));
+    AdaptiveGetRecordsStrategy kclStrategy =
+        new AdaptiveGetRecordsStrategy("test-stream", SHARD_ID, dataFetcher, 100, 0, 5000);
+
+    kclStrategy.getRecords(10000);
+    kclStrategy.getRecords(10000);
+
+    ArgumentCaptor<GetRecordsRequest> requests = ArgumentCaptor.forClass(GetRecordsRequest.class);
+    verify(kinesisClient, times(2)).getRecords(requests.capture());
+    List<Integer> requestLimits =
+        requests.getAllValues().stream().map(GetRecordsRequest::limit).collect(Collectors.toList());
+    assertEquals(Arrays.asList(100, 200), requestLimits);
+  }
+
+  private static GetRecordsResponse response(int records, Long millisBehindLatest) {
+    return GetRecordsResponse.builder()
+        .records(
+            IntStream.range(0, records)
+                .mapToObj(i -> Record.builder().sequenceNumber(String.valueOf(i)).build())
+                .collect(Collectors.toList()))
+        .millisBehindLatest(millisBehindLatest)
+        .nextShardIterator("next-iterator")
+        .build();
+  }
+}
@@ -95,12 +95,21 @@ public class BaseLocalStack {
   }
 
   protected void createStreamAsync(String streamName) {
+    createStreamAsync(streamName, 1);
+  }
+
+  protected void createStreamAsync(String streamName, int shardCount) {
     kinesisClient.createStream(
-        CreateStreamRequest.builder().streamName(streamName).shardCount(1).build());
+        CreateStreamRequest.builder().streamName(streamName).shardCount(shardCount).build());
   }
 
   protected void createStreamAndWait(String streamName) throws InterruptedException {
-    createStreamAsync(streamName);
+    createStreamAndWait(streamName, 1);
+  }
+
+  protected void createStreamAndWait(String streamName, int shardCount)
+      throws InterruptedException {
+    createStreamAsync(streamName, shardCount);
     io.jenkins.plugins.aws.kinesisconsumer.utils.WaitUtil.waitUntil(
         () ->
             kinesisClient
@@ -0,0 +1,72 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import software.amazon.kinesis.processor.RecordProcessorCheckpointer;
+import software.amazon.kinesis.retrieval.KinesisClientRecord;
+
+public class CheckpointPolicyTest {
+  private static final String SHARD_ID = "shardId-000000000000";
+
+  private final RecordProcessorCheckpointer checkpointer = mock(RecordProcessorCheckpointer.class);
+  private final ShardProgress progress = new ShardProgress("test-stream", SHARD_ID);
+
+  @Test
+  public void shouldNotCheckpointWhenDisabled() throws Exception {
+    CheckpointPolicy policy = new CheckpointPolicy("test-stream", SHARD_ID, 0, 0);
+    progress.dispatched(batch(0, 100));
+
+    policy.maybeCheckpoint(progress, checkpointer);
+
+    verify(checkpointer, never()).checkpoint(anyString(), anyLong());
+  }
+
+  @Test
+  public void shouldCheckpointLastDispatchedRecordEveryNRecords() throws Exception {
+    CheckpointPolicy policy = new CheckpointPolicy("test-stream", SHARD_ID, 10, 0);
+
+    progress.dispatched(batch(0, 5));
+    policy.maybeCheckpoint(progress, checkpointer);
+    verify(checkpointer, never()).checkpoint(anyString(), anyLong());
+
+    progress.dispatched(batch(5, 12));
+    policy.maybeCheckpoint(progress, checkpointer);
+    verify(checkpointer).checkpoint("11", 0L);
+  }
+
+  @Test
+  public void shouldCheckpointWhenIntervalElapsed() throws Exception {
+    CheckpointPolicy policy = new CheckpointPolicy("test-stream", SHARD_ID, 0, 1);
+    progress.dispatched(batch(0, 1));
+
+    policy.maybeCheckpoint(progress, checkpointer);
+    verify(checkpointer, never()).checkpoint(anyString(), anyLong());
+
+    Thread.sleep(1100);
+    policy.maybeCheckpoint(progress, checkpointer);
+    verify(checkpointer).checkpoint("0", 0L);
+  }
+
+  private static RecordBatch batch(int from, int to) {
+    List<KinesisClientRecord> records = new ArrayList<>();
+    IntStream.range(from, to)
+        .forEach(
+            i ->
+                records.add(
+                    KinesisClientRecord.builder()
+                        .sequenceNumber(String.valueOf(i))
+                        .partitionKey("partitionKey")
+                        .data(ByteBuffer.allocate(0))
+                        .build()));
+    return new RecordBatch(SHARD_ID, records);
+  }
+}
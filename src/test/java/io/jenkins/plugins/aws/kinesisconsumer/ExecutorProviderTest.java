@@ -0,0 +1,50 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class ExecutorProviderTest {
+  @Rule public JenkinsRule j = new JenkinsRule();
+
+  @Test
+  public void shouldNameThreadsAfterTheStream() {
+    GlobalKinesisConfiguration c = GlobalKinesisConfiguration.get();
+
+    Thread thread =
+        new ExecutorProvider(c).threadFactory("kinesis-dispatch-test-stream-").newThread(() -> {});
+
+    assertEquals("kinesis-dispatch-test-stream-0", thread.getName());
+    assertTrue(thread.isDaemon());
+  }
+
+  @Test
+  public void shouldBoundShardConsumerThreads() {
+    GlobalKinesisConfiguration c = GlobalKinesisConfiguration.get();
+    c.setShardConsumerThreads(3);
+
+    ExecutorService executor = new ExecutorProvider(c).newShardConsumerExecutor("test-stream");
+    try {
+      assertEquals(3, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void shouldNameVirtualOrFallbackThreadsAfterTheStream() {
+    GlobalKinesisConfiguration c = GlobalKinesisConfiguration.get();
+    c.setThreadType("virtual");
+
+    Thread thread =
+        new ExecutorProvider(c).threadFactory("kinesis-scheduler-test-stream-").newThread(() -> {});
+
+    assertEquals("kinesis-scheduler-test-stream-0", thread.getName());
+    assertTrue(thread.isDaemon());
+  }
+}
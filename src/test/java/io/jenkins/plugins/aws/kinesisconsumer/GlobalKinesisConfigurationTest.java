@@ -2,14 +2,25 @@ package io.jenkins.plugins.aws.kinesisconsumer;
 
 import static io.jenkins.plugins.aws.kinesisconsumer.GlobalKinesisConfiguration.DEFAULT_SHUTDOWN_TIMEOUT_MS;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 import com.google.common.collect.ImmutableList;
 import hudson.util.FormValidation;
+import java.time.Duration;
 import org.junit.Rule;
 import org.junit.Test;
 import org.jvnet.hudson.test.For;
 import org.jvnet.hudson.test.JenkinsRule;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.http.nio.netty.Http2Configuration;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
 
 @For(GlobalKinesisConfiguration.class)
 public class GlobalKinesisConfigurationTest {
@@ -89,6 +100,85 @@ public class GlobalKinesisConfigurationTest {
     assertEquals(c.doCheckInitialPositionInStream("tRiM_HoRiZoN").kind, FormValidation.Kind.OK);
   }
 
+  @Test
+  public void shouldKeepSdkDefaultsForUnsetTransportSettings() {
+    GlobalKinesisConfiguration c = GlobalKinesisConfiguration.get();
+    c.setHttpMaxConcurrency(0);
+    c.setHttpReadTimeoutMs(null);
+    c.setHttpConnectionAcquisitionTimeoutMs(60000);
+
+    assertNull(c.getHttpMaxConcurrency());
+    assertNull(c.getHttpReadTimeoutMs());
+    assertEquals(Integer.valueOf(60000), c.getHttpConnectionAcquisitionTimeoutMs());
+  }
+
+  @Test
+  public void shouldApplyTransportSettingsToTheHttpClient() {
+    GlobalKinesisConfiguration c = GlobalKinesisConfiguration.get();
+    c.setHttpMaxConcurrency(100);
+    c.setHttpConnectionAcquisitionTimeoutMs(60000);
+    c.setHttpWriteTimeoutMs(20000);
+    c.setHttp2MaxStreams(8);
+    c.setHttp2InitialWindowSize(1048576);
+    SdkEventLoopGroup eventLoopGroup = SdkEventLoopGroup.builder().numberOfThreads(1).build();
+    NettyNioAsyncHttpClient.Builder builder =
+        mock(NettyNioAsyncHttpClient.Builder.class, RETURNS_SELF);
+
+    try {
+      new AsyncClientBuilder(c, eventLoopGroup).httpClientBuilder(builder);
+    } finally {
+      eventLoopGroup.eventLoopGroup().shutdownGracefully();
+    }
+
+    ArgumentCaptor<Http2Configuration> http2Configuration =
+        ArgumentCaptor.forClass(Http2Configuration.class);
+    verify(builder).eventLoopGroup(eventLoopGroup);
+    verify(builder).maxConcurrency(100);
+    verify(builder).connectionAcquisitionTimeout(Duration.ofMillis(60000));
+    verify(builder, never()).readTimeout(any());
+    verify(builder).writeTimeout(Duration.ofMillis(20000));
+    verify(builder).http2Configuration(http2Configuration.capture());
+    assertEquals(Long.valueOf(8), http2Configuration.getValue().maxStreams());
+    assertEquals(Integer.valueOf(1048576), http2Configuration.getValue().initialWindowSize());
+  }
+
+  @Test
+  public void shouldCheckInvalidRetrievalMode() {
+    GlobalKinesisConfiguration c = GlobalKinesisConfiguration.get();
+
+    FormValidation result = c.doCheckRetrievalMode("foo-bar");
+
+    assertEquals(result.kind, FormValidation.Kind.ERROR);
+    assertTrue(result.getMessage().contains("not a valid retrieval mode"));
+  }
+
+  @Test
+  public void shouldCheckRetrievalMode() {
+    GlobalKinesisConfiguration c = GlobalKinesisConfiguration.get();
+
+    assertEquals(c.doCheckRetrievalMode("FAN_OUT").kind, FormValidation.Kind.OK);
+    assertEquals(c.doCheckRetrievalMode("polling").kind, FormValidation.Kind.OK);
+  }
+
+  @Test
+  public void shouldCheckThreadType() {
+    GlobalKinesisConfiguration c = GlobalKinesisConfiguration.get();
+
+    assertEquals(c.doCheckThreadType("virtual").kind, FormValidation.Kind.OK);
+    assertEquals(c.doCheckThreadType("green").kind, FormValidation.Kind.ERROR);
+    assertEquals(ThreadType.PLATFORM.name(), c.getThreadType());
+  }
+
+  @Test
+  public void shouldCheckFilterRules() {
+    GlobalKinesisConfiguration c = GlobalKinesisConfiguration.get();
+
+    assertEquals(c.doCheckFilterPayloadRegex("\"action\":\"(push").kind, FormValidation.Kind.ERROR);
+    assertEquals(c.doCheckFilterPartitionKeyRegex("repo-.*").kind, FormValidation.Kind.OK);
+    assertEquals(c.doCheckFilterJsonPath("$.action[").kind, FormValidation.Kind.ERROR);
+    assertEquals(c.doCheckFilterJsonPath("$[?(@.action != 'ping')]").kind, FormValidation.Kind.OK);
+  }
+
   @Test
   public void shouldCheckInvalidApplicationName() {
     GlobalKinesisConfiguration c = GlobalKinesisConfiguration.get();
@@ -115,4 +205,37 @@ public class GlobalKinesisConfigurationTest {
 
     assertEquals(timeoutMs, c.getShutdownTimeoutMs());
   }
+
+  @Test
+  public void shouldGetKinesisStreamItemsForStream() {
+    KinesisStreamItem foo = new KinesisStreamItem("stream_foo", "LATEST", "$.project", true);
+    KinesisStreamItem bar = new KinesisStreamItem("stream_bar", "LATEST", "$.project", true);
+    GlobalKinesisConfiguration c = GlobalKinesisConfiguration.get();
+
+    c.setKinesisStreamItems(ImmutableList.of(foo, bar));
+
+    assertEquals(foo, c.getKinesisStreamItemsForStream("stream_foo"));
+    assertEquals(bar, c.getKinesisStreamItemsForStream("stream_bar"));
+  }
+
+  @Test
+  public void shouldGetKinesisStreamItemsForStreamAfterReload() {
+    GlobalKinesisConfiguration c = GlobalKinesisConfiguration.get();
+    c.setKinesisStreamItems(
+        ImmutableList.of(new KinesisStreamItem("stream_foo", "LATEST", "$.project", true)));
+    c.save();
+
+    c.load();
+
+    assertEquals("stream_foo", c.getKinesisStreamItemsForStream("stream_foo").getStreamName());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldFailToGetKinesisStreamItemsForUnknownStream() {
+    GlobalKinesisConfiguration c = GlobalKinesisConfiguration.get();
+    c.setKinesisStreamItems(
+        ImmutableList.of(new KinesisStreamItem("stream_foo", "LATEST", "$.project", true)));
+
+    c.getKinesisStreamItemsForStream("stream_bar");
+  }
 }
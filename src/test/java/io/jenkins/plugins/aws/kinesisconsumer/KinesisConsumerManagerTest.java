@@ -1,11 +1,20 @@
 package io.jenkins.plugins.aws.kinesisconsumer;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import org.junit.Test;
 
 public class KinesisConsumerManagerTest extends BaseLocalStack {
+  private static final String OTHER_STREAM_NAME = "other-test-stream";
 
   @Test
   public void shouldShutDownConsumers() throws InterruptedException {
@@ -22,4 +31,92 @@ public class KinesisConsumerManagerTest extends BaseLocalStack {
 
     assertFalse(kinesisConsumer.isStarted());
   }
+
+  @Test
+  public void shouldOnlyStartAddedStreamsWhenReconciling() throws InterruptedException {
+    createStreamAndWait(STREAM_NAME);
+    createStreamAndWait(OTHER_STREAM_NAME);
+    kinesisConsumerManager.startAllConsumers(globalKinesisConfiguration);
+    KinesisConsumer kinesisConsumer = kinesisConsumerManager.getKinesisConsumers().get(STREAM_NAME);
+
+    globalKinesisConfiguration.setKinesisStreamItems(
+        Arrays.asList(
+            globalKinesisConfiguration.getKinesisStreamItemsForStream(STREAM_NAME),
+            new KinesisStreamItem(OTHER_STREAM_NAME, "TRIM_HORIZON", PROJECT_FIELD_NAME, true)));
+    kinesisConsumerManager.reconcileConsumers(globalKinesisConfiguration);
+
+    assertSame(kinesisConsumer, kinesisConsumerManager.getKinesisConsumers().get(STREAM_NAME));
+    assertTrue(kinesisConsumer.isStarted());
+    assertTrue(kinesisConsumerManager.getKinesisConsumers().get(OTHER_STREAM_NAME).isStarted());
+
+    kinesisConsumerManager.onBeforeShutdown();
+  }
+
+  @Test
+  public void shouldOnlyStopRemovedStreamsWhenReconciling() throws InterruptedException {
+    createStreamAndWait(STREAM_NAME);
+    createStreamAndWait(OTHER_STREAM_NAME);
+    KinesisStreamItem kinesisStreamItem =
+        globalKinesisConfiguration.getKinesisStreamItemsForStream(STREAM_NAME);
+    globalKinesisConfiguration.setKinesisStreamItems(
+        Arrays.asList(
+            kinesisStreamItem,
+            new KinesisStreamItem(OTHER_STREAM_NAME, "TRIM_HORIZON", PROJECT_FIELD_NAME, true)));
+    kinesisConsumerManager.startAllConsumers(globalKinesisConfiguration);
+    KinesisConsumer kinesisConsumer = kinesisConsumerManager.getKinesisConsumers().get(STREAM_NAME);
+    KinesisConsumer otherConsumer =
+        kinesisConsumerManager.getKinesisConsumers().get(OTHER_STREAM_NAME);
+
+    globalKinesisConfiguration.setKinesisStreamItems(Collections.singletonList(kinesisStreamItem));
+    kinesisConsumerManager.reconcileConsumers(globalKinesisConfiguration);
+
+    assertTrue(kinesisConsumer.isStarted());
+    assertFalse(otherConsumer.isStarted());
+    assertFalse(kinesisConsumerManager.getKinesisConsumers().containsKey(OTHER_STREAM_NAME));
+
+    kinesisConsumerManager.onBeforeShutdown();
+  }
+
+  @Test
+  public void shouldShutDownAllConsumersConcurrently() throws InterruptedException {
+    createStreamAndWait(STREAM_NAME);
+    createStreamAndWait(OTHER_STREAM_NAME);
+    globalKinesisConfiguration.setKinesisStreamItems(
+        Arrays.asList(
+            globalKinesisConfiguration.getKinesisStreamItemsForStream(STREAM_NAME),
+            new KinesisStreamItem(OTHER_STREAM_NAME, "TRIM_HORIZON", PROJECT_FIELD_NAME, true)));
+    kinesisConsumerManager.startAllConsumers(globalKinesisConfiguration);
+    List<KinesisConsumer> kinesisConsumers =
+        new ArrayList<>(kinesisConsumerManager.getKinesisConsumers().values());
+
+    Map<String, KinesisConsumer.ShutdownOutcome> outcomes =
+        kinesisConsumerManager.shutDownConsumers(kinesisConsumers);
+
+    assertEquals(2, outcomes.size());
+    assertNotEquals(KinesisConsumer.ShutdownOutcome.NOT_STARTED, outcomes.get(STREAM_NAME));
+    assertNotEquals(KinesisConsumer.ShutdownOutcome.NOT_STARTED, outcomes.get(OTHER_STREAM_NAME));
+    kinesisConsumers.forEach(c -> assertFalse(c.isStarted()));
+  }
+
+  @Test
+  public void shouldConsumeAllStreamsWithASingleScheduler() throws InterruptedException {
+    createStreamAndWait(STREAM_NAME);
+    createStreamAndWait(OTHER_STREAM_NAME);
+    globalKinesisConfiguration.setMultiStreamScheduler(true);
+    globalKinesisConfiguration.setKinesisStreamItems(
+        Arrays.asList(
+            globalKinesisConfiguration.getKinesisStreamItemsForStream(STREAM_NAME),
+            new KinesisStreamItem(OTHER_STREAM_NAME, "TRIM_HORIZON", PROJECT_FIELD_NAME, true)));
+
+    kinesisConsumerManager.startAllConsumers(globalKinesisConfiguration);
+
+    assertEquals(1, kinesisConsumerManager.getKinesisConsumers().size());
+    KinesisConsumer kinesisConsumer =
+        kinesisConsumerManager.getKinesisConsumers().get(MultiStreamKinesisConsumer.NAME);
+    assertTrue(kinesisConsumer.isStarted());
+    assertEquals(2, kinesisConsumer.getKinesisStreamItems().size());
+
+    kinesisConsumerManager.onBeforeShutdown();
+    assertFalse(kinesisConsumer.isStarted());
+  }
 }
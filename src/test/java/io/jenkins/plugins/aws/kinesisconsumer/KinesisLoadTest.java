@@ -0,0 +1,219 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.RateLimiter;
+import io.jenkins.plugins.aws.kinesisconsumer.extensions.AWSKinesisStreamListener;
+import io.jenkins.plugins.aws.kinesisconsumer.utils.WaitUtil;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.jvnet.hudson.test.TestExtension;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.kinesis.model.PutRecordsRequest;
+import software.amazon.awssdk.services.kinesis.model.PutRecordsRequestEntry;
+import software.amazon.awssdk.services.kinesis.model.PutRecordsResponse;
+import software.amazon.awssdk.services.kinesis.model.PutRecordsResultEntry;
+
+/**
+ * End-to-end load test of the consumer against LocalStack.
+ *
+ * <p>Records are put to a multi-shard stream at a fixed rate, and the test reports the latency
+ * percentiles between the put and the {@link AWSKinesisStreamListener#onReceive} call, the
+ * sustained throughput and the time needed to catch up with a backlog accumulated while the
+ * consumer was stopped. The report is logged and written to <i>target/kinesis-load-test.json</i>.
+ *
+ * <p>The test is excluded from the default build, run it with:
+ *
+ * <pre>
+ * mvn test -Dtest=KinesisLoadTest -Dkinesis.load.shards=4 -Dkinesis.load.rate=500
+ * </pre>
+ */
+public class KinesisLoadTest extends BaseLocalStack {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final int SHARDS = Integer.getInteger("kinesis.load.shards", 4);
+  private static final int RATE = Integer.getInteger("kinesis.load.rate", 200);
+  private static final int DURATION_SECONDS = Integer.getInteger("kinesis.load.durationSec", 60);
+  private static final int BACKLOG_SECONDS = Integer.getInteger("kinesis.load.backlogSec", 30);
+  private static final int PAYLOAD_BYTES = Integer.getInteger("kinesis.load.payloadBytes", 1024);
+  private static final int PARTITION_KEYS = Integer.getInteger("kinesis.load.partitionKeys", 64);
+  private static final int MAX_PUT_RECORDS = 500;
+  private static final int MAX_PUT_BYTES = 4 * 1024 * 1024;
+  private static final Duration DRAIN_TIMEOUT = Duration.ofMinutes(10);
+  private static final long PUT_RETRY_BASE_MILLIS = 50;
+  private static final long PUT_RETRY_MAX_MILLIS = 2000;
+
+  /** Records the put-to-onReceive latency of the records produced by the test */
+  @TestExtension
+  public static class LoadListener extends AWSKinesisStreamListener {
+    private final Set<Long> received = ConcurrentHashMap.newKeySet();
+    private final List<Long> latenciesNanos = new ArrayList<>();
+    private final AtomicLong lastReceivedNanos = new AtomicLong();
+
+    @Override
+    public void onReceive(String streamName, String jsonPayload) {
+      long now = System.nanoTime();
+      long id = Long.parseLong(StringUtils.substringBetween(jsonPayload, "\"id\":", ","));
+      long sentAt = Long.parseLong(StringUtils.substringBetween(jsonPayload, "\"sentAt\":", ","));
+      if (received.add(id)) {
+        synchronized (latenciesNanos) {
+          latenciesNanos.add(now - sentAt);
+        }
+        lastReceivedNanos.accumulateAndGet(now, Math::max);
+      }
+    }
+
+    int receivedCount() {
+      return received.size();
+    }
+
+    long[] drainLatencies() {
+      synchronized (latenciesNanos) {
+        long[] latencies = latenciesNanos.stream().mapToLong(Long::longValue).toArray();
+        latenciesNanos.clear();
+        return latencies;
+      }
+    }
+  }
+
+  @Test
+  public void shouldSustainTheConfiguredRate() throws Exception {
+    createStreamAndWait(STREAM_NAME, SHARDS);
+    kinesisConsumerManager.startAllConsumers(globalKinesisConfiguration);
+    waitForLeaseTable();
+    LoadListener listener =
+        AWSKinesisStreamListener.getAllRegisteredListeners().get(LoadListener.class);
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("shards", SHARDS);
+    report.put("rate", RATE);
+    report.put("payloadBytes", PAYLOAD_BYTES);
+    report.put("partitionKeys", PARTITION_KEYS);
+
+    long steadyStart = System.nanoTime();
+    long steadyRecords = produce(0, (long) RATE * DURATION_SECONDS);
+    long producedNanos = System.nanoTime() - steadyStart;
+    awaitReceived(listener, steadyRecords);
+    long drainedNanos = listener.lastReceivedNanos.get() - steadyStart;
+    report.put("steadyRecords", steadyRecords);
+    report.put("producerRecordsPerSec", perSecond(steadyRecords, producedNanos));
+    report.put("consumerRecordsPerSec", perSecond(steadyRecords, drainedNanos));
+    report.put("latencyMs", percentiles(listener.drainLatencies()));
+
+    kinesisConsumerManager.shutDownAllConsumers();
+    long backlogRecords = produce(steadyRecords, (long) RATE * BACKLOG_SECONDS);
+    long restartStart = System.nanoTime();
+    kinesisConsumerManager.startAllConsumers(globalKinesisConfiguration);
+    awaitReceived(listener, steadyRecords + backlogRecords);
+    long catchUpNanos = listener.lastReceivedNanos.get() - restartStart;
+    listener.drainLatencies();
+    report.put("backlogRecords", backlogRecords);
+    report.put("catchUpSeconds", TimeUnit.NANOSECONDS.toMillis(catchUpNanos) / 1000.0);
+    report.put("catchUpRecordsPerSec", perSecond(backlogRecords, catchUpNanos));
+
+    kinesisConsumerManager.shutDownAllConsumers();
+    writeReport(report);
+    assertEquals(steadyRecords + backlogRecords, listener.receivedCount());
+  }
+
+  /**
+   * Put records to the stream at the configured rate
+   *
+   * @param firstId the id of the first record
+   * @param count the number of records to put
+   * @return the number of records put
+   */
+  private long produce(long firstId, long count) throws InterruptedException {
+    int batchSize =
+        Math.max(1, Math.min(MAX_PUT_RECORDS, Math.min(RATE / 10, MAX_PUT_BYTES / PAYLOAD_BYTES)));
+    RateLimiter rateLimiter = RateLimiter.create(RATE);
+    String padding = StringUtils.repeat('x', PAYLOAD_BYTES);
+    for (long id = firstId; id < firstId + count; ) {
+      int size = (int) Math.min(batchSize, firstId + count - id);
+      rateLimiter.acquire(size);
+      List<PutRecordsRequestEntry> entries = new ArrayList<>(size);
+      long sentAt = System.nanoTime();
+      for (int i = 0; i < size; i++, id++) {
+        String payload =
+            String.format("{\"id\":%d,\"sentAt\":%d,\"padding\":\"%s\"}", id, sentAt, padding);
+        entries.add(
+            PutRecordsRequestEntry.builder()
+                .partitionKey("key-" + id % PARTITION_KEYS)
+                .data(SdkBytes.fromUtf8String(payload))
+                .build());
+      }
+      putRecords(entries);
+    }
+    return count;
+  }
+
+  /**
+   * Put records to the stream, retrying the throttled ones with an exponential backoff
+   *
+   * @param entries the records to put
+   */
+  private void putRecords(List<PutRecordsRequestEntry> entries) throws InterruptedException {
+    for (int attempt = 0; !entries.isEmpty(); attempt++) {
+      if (attempt > 0) {
+        Thread.sleep(
+            Math.min(PUT_RETRY_MAX_MILLIS, PUT_RETRY_BASE_MILLIS << Math.min(attempt - 1, 10)));
+      }
+      PutRecordsResponse response =
+          kinesisClient.putRecords(
+              PutRecordsRequest.builder().streamName(STREAM_NAME).records(entries).build());
+      List<PutRecordsRequestEntry> failed = new ArrayList<>();
+      List<PutRecordsResultEntry> results = response.records();
+      for (int i = 0; i < results.size(); i++) {
+        if (results.get(i).errorCode() != null) {
+          failed.add(entries.get(i));
+        }
+      }
+      entries = failed;
+    }
+  }
+
+  private static void awaitReceived(LoadListener listener, long count)
+      throws InterruptedException {
+    WaitUtil.waitUntil(() -> listener.receivedCount() >= count, DRAIN_TIMEOUT);
+  }
+
+  private static double perSecond(long records, long nanos) {
+    return records * 1e9 / Math.max(1, nanos);
+  }
+
+  private static Map<String, Double> percentiles(long[] latenciesNanos) {
+    Arrays.sort(latenciesNanos);
+    Map<String, Double> percentiles = new LinkedHashMap<>();
+    if (latenciesNanos.length == 0) {
+      return percentiles;
+    }
+    for (double percentile : new double[] {50, 90, 99, 99.9, 100}) {
+      int rank = (int) Math.ceil(percentile / 100 * latenciesNanos.length);
+      percentiles.put(
+          "p" + StringUtils.removeEnd(String.valueOf(percentile), ".0"),
+          latenciesNanos[Math.max(0, rank - 1)] / 1e6);
+    }
+    return percentiles;
+  }
+
+  private static void writeReport(Map<String, Object> report) throws IOException {
+    ObjectMapper mapper = new ObjectMapper();
+    String json = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(report);
+    logger.atInfo().log("Kinesis load test: %s", json);
+    Files.write(new File("target", "kinesis-load-test.json").toPath(), json.getBytes(UTF_8));
+  }
+}
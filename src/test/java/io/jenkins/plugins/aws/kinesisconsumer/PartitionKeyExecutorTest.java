@@ -0,0 +1,125 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import io.jenkins.plugins.aws.kinesisconsumer.extensions.AWSKinesisRecord;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.After;
+import org.junit.Test;
+
+public class PartitionKeyExecutorTest {
+  private static final int KEYS = 8;
+
+  private final Map<String, List<String>> deliveredByKey = new ConcurrentHashMap<>();
+  private final Set<String> threads = ConcurrentHashMap.newKeySet();
+  private PartitionKeyExecutor executor;
+
+  @After
+  public void tearDown() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldKeepTheOrderOfEachPartitionKey() {
+    executor = new PartitionKeyExecutor("test-stream", 4);
+
+    executor.deliver(records(1000), this::collect);
+
+    assertEquals(KEYS, deliveredByKey.size());
+    deliveredByKey.forEach(
+        (key, sequenceNumbers) -> {
+          List<String> sorted = new ArrayList<>(sequenceNumbers);
+          sorted.sort((a, b) -> Integer.parseInt(a) - Integer.parseInt(b));
+          assertEquals(sorted, sequenceNumbers);
+          assertEquals(1000 / KEYS, sequenceNumbers.size());
+        });
+  }
+
+  @Test
+  public void shouldDeliverPartitionKeysInParallel() throws Exception {
+    executor = new PartitionKeyExecutor("test-stream", 2);
+    CountDownLatch bothStarted = new CountDownLatch(2);
+
+    executor.deliver(
+        records(100),
+        subset -> {
+          bothStarted.countDown();
+          try {
+            assertTrue(bothStarted.await(10, TimeUnit.SECONDS));
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          collect(subset);
+        });
+
+    assertEquals(2, threads.size());
+    assertEquals(100, deliveredByKey.values().stream().mapToInt(List::size).sum());
+  }
+
+  @Test
+  public void shouldWaitForAllThePartitionKeysWhenInterrupted() {
+    executor = new PartitionKeyExecutor("test-stream", 2);
+    Thread caller = Thread.currentThread();
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger delivered = new AtomicInteger();
+
+    executor.deliver(
+        records(100),
+        subset -> {
+          if (Thread.currentThread() == caller) {
+            caller.interrupt();
+            new Thread(
+                    () -> {
+                      Uninterruptibles.sleepUninterruptibly(500, TimeUnit.MILLISECONDS);
+                      release.countDown();
+                    })
+                .start();
+          } else {
+            Uninterruptibles.awaitUninterruptibly(release);
+          }
+          delivered.addAndGet(subset.size());
+        });
+
+    assertTrue(Thread.interrupted());
+    assertEquals(100, delivered.get());
+  }
+
+  @Test
+  public void shouldDeliverInTheCallingThreadWhenSequential() {
+    PartitionKeyExecutor.sequential().deliver(records(100), this::collect);
+
+    assertEquals(Collections.singleton(Thread.currentThread().getName()), threads);
+  }
+
+  private void collect(List<AWSKinesisRecord> records) {
+    threads.add(Thread.currentThread().getName());
+    records.forEach(
+        r ->
+            deliveredByKey
+                .computeIfAbsent(r.getPartitionKey(), k -> new ArrayList<>())
+                .add(r.getSequenceNumber()));
+  }
+
+  private static List<AWSKinesisRecord> records(int count) {
+    return IntStream.range(0, count)
+        .mapToObj(
+            i ->
+                new AWSKinesisRecord(
+                    "shardId-000000000000", String.valueOf(i), 0, "key-" + i % KEYS, null, "{}"))
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,81 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.jayway.jsonpath.JsonPath;
+import io.jenkins.plugins.aws.kinesisconsumer.extensions.AWSKinesisRecord;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.MetricsRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+public class RecordDeduplicatorTest {
+  private static final String SHARD_ID = "shardId-000000000000";
+
+  @Test
+  public void shouldDiscardRecordsAlreadyDelivered() {
+    RecordDeduplicator deduplicator = new RecordDeduplicator("dedup-sequence", null, 100, 600);
+
+    assertTrue(deduplicator.test(record("1", "{}")));
+    assertTrue(deduplicator.test(record("2", "{}")));
+    assertFalse(deduplicator.test(record("1", "{}")));
+
+    MetricsRegistry metrics = MetricsRegistry.get();
+    assertEquals(1, metrics.counter("kinesis_dedup_hits", "stream", "dedup-sequence").get());
+    assertEquals(2, metrics.counter("kinesis_dedup_misses", "stream", "dedup-sequence").get());
+  }
+
+  @Test
+  public void shouldDiscardRecordsWithTheSamePayloadId() {
+    RecordDeduplicator deduplicator =
+        new RecordDeduplicator("dedup-payload", JsonPath.compile("$.id"), 100, 600);
+
+    assertTrue(deduplicator.test(record("1", "{\"id\": \"a\"}")));
+    assertFalse(deduplicator.test(record("2", "{\"id\": \"a\"}")));
+    assertTrue(deduplicator.test(record("3", "{\"id\": \"b\"}")));
+    assertTrue(deduplicator.test(record("4", "{}")));
+    assertTrue(deduplicator.test(record("4", "{}")));
+  }
+
+  @Test
+  public void shouldDeliverRecordsWithAnInvalidPayload() {
+    RecordDeduplicator deduplicator =
+        new RecordDeduplicator("dedup-invalid", JsonPath.compile("$.id"), 100, 600);
+
+    assertTrue(deduplicator.test(record("1", "{\"id\": ")));
+    assertTrue(deduplicator.test(record("2", "{\"id\": ")));
+  }
+
+  @Test
+  public void shouldForgetRecordsOutsideTheWindow() {
+    RecordDeduplicator deduplicator = new RecordDeduplicator("dedup-window", null, 100, 1);
+    long now = System.nanoTime();
+
+    assertFalse(deduplicator.seen(42, now));
+    assertTrue(deduplicator.seen(42, now + TimeUnit.MILLISECONDS.toNanos(500)));
+    assertFalse(deduplicator.seen(42, now + TimeUnit.SECONDS.toNanos(2)));
+    assertEquals(1, deduplicator.size());
+  }
+
+  @Test
+  public void shouldEvictOldestEntriesWhenFull() {
+    RecordDeduplicator deduplicator = new RecordDeduplicator("dedup-evict", null, 10, 600);
+    long now = System.nanoTime();
+
+    IntStream.range(0, 1000).forEach(i -> assertFalse(deduplicator.seen(hash(i), now)));
+
+    assertEquals(10, deduplicator.size());
+    IntStream.range(990, 1000).forEach(i -> assertTrue(deduplicator.seen(hash(i), now)));
+    assertFalse(deduplicator.seen(hash(0), now));
+  }
+
+  private static long hash(int i) {
+    return RecordDeduplicator.hash(SHARD_ID, String.valueOf(i), 0);
+  }
+
+  private static AWSKinesisRecord record(String sequenceNumber, String payload) {
+    return new AWSKinesisRecord(SHARD_ID, sequenceNumber, 0, "partitionKey", null, payload);
+  }
+}
@@ -0,0 +1,243 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.MetricsRegistry;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.ShardLag;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.ShardLagRegistry;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.kinesis.retrieval.KinesisClientRecord;
+
+public class RecordDispatcherTest {
+  private static final String STREAM = "test-stream";
+  private static final String SHARD_ID = "shardId-000000000000";
+  private static final String OTHER_SHARD_ID = "shardId-000000000001";
+  private static final long TIMEOUT_MS = 10000;
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private final List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+  private final CountDownLatch started = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+  private RecordDispatcher dispatcher;
+
+  @Before
+  public void setUp() {
+    MetricsRegistry.get().clear();
+    ShardLagRegistry.get().clear();
+  }
+
+  @After
+  public void tearDown() {
+    release.countDown();
+    if (dispatcher != null) {
+      dispatcher.shutdown(TIMEOUT_MS);
+    }
+  }
+
+  @Test
+  public void shouldDeliverRecordsOfAShardInOrder() {
+    release.countDown();
+    dispatcher = newDispatcher(4, 100, DispatchBackpressure.BLOCK);
+
+    IntStream.range(0, 50).forEach(i -> dispatcher.dispatch(batch(i)));
+
+    assertTrue(dispatcher.awaitIdle(SHARD_ID, TIMEOUT_MS));
+    assertEquals(sequenceNumbers(0, 50), delivered);
+    assertEquals(0, dispatcher.getQueueDepth());
+  }
+
+  @Test
+  public void shouldDropOldestRecordsWhenQueueIsFull() throws Exception {
+    dispatcher = newDispatcher(1, 2, DispatchBackpressure.DROP_OLDEST);
+    dispatcher.dispatch(batch(0));
+    assertTrue(started.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+    IntStream.range(1, 4).forEach(i -> dispatcher.dispatch(batch(i)));
+    assertEquals(2, dispatcher.getQueueDepth());
+    release.countDown();
+
+    assertTrue(dispatcher.awaitIdle(SHARD_ID, TIMEOUT_MS));
+    assertEquals(Collections.singletonList("0"), delivered.subList(0, 1));
+    assertEquals(sequenceNumbers(2, 4), delivered.subList(1, delivered.size()));
+    assertEquals(1, dispatcher.getDroppedRecords());
+  }
+
+  @Test
+  public void shouldOnlyDropRecordsOfTheSubmittingShard() throws Exception {
+    dispatcher = newDispatcher(1, 2, DispatchBackpressure.DROP_OLDEST);
+    dispatcher.dispatch(batch(0));
+    assertTrue(started.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+    dispatcher.dispatch(batch(OTHER_SHARD_ID, 100));
+    dispatcher.dispatch(batch(1));
+    dispatcher.dispatch(batch(2));
+    release.countDown();
+
+    assertTrue(dispatcher.awaitIdle(SHARD_ID, TIMEOUT_MS));
+    assertEquals(Arrays.asList("0", "100", "2"), delivered);
+    assertEquals(1, dispatcher.getDroppedRecords());
+  }
+
+  @Test
+  public void shouldSpillRecordsInOrderWhenQueueIsFull() throws Exception {
+    dispatcher = newDispatcher(1, 2, DispatchBackpressure.SPILL);
+    dispatcher.dispatch(batch(0));
+    assertTrue(started.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+    IntStream.range(1, 10).forEach(i -> dispatcher.dispatch(batch(i)));
+    assertEquals(9, dispatcher.getQueueDepth());
+
+    assertEquals(
+        9, MetricsRegistry.get().gauge("kinesis_dispatch_queue_depth", "stream", STREAM).get());
+    release.countDown();
+
+    assertTrue(dispatcher.awaitIdle(SHARD_ID, TIMEOUT_MS));
+    assertEquals(sequenceNumbers(0, 10), delivered);
+    assertEquals(7, dispatcher.getSpilledRecords());
+    assertEquals(0, dispatcher.getDroppedRecords());
+    MetricsRegistry metrics = MetricsRegistry.get();
+    assertEquals(7, metrics.counter("kinesis_dispatch_spilled_records", "stream", STREAM).get());
+    assertEquals(0, metrics.gauge("kinesis_dispatch_queue_depth", "stream", STREAM).get());
+    assertEquals(10, metrics.histogram("kinesis_dispatch_wait_ms", "stream", STREAM).getCount());
+  }
+
+  @Test
+  public void shouldDeleteRecordsSpilledByAPreviousRun() throws Exception {
+    File spillFile = new File(tmp.getRoot(), "0.spill");
+    try (DataOutputStream out = new DataOutputStream(new FileOutputStream(spillFile))) {
+      batch(0).writeTo(out);
+      batch(1).writeTo(out);
+    }
+    release.countDown();
+    dispatcher = newDispatcher(1, 2, DispatchBackpressure.SPILL);
+
+    dispatcher.dispatch(batch(2));
+
+    assertTrue(dispatcher.awaitIdle(SHARD_ID, TIMEOUT_MS));
+    assertEquals(Collections.singletonList("2"), delivered);
+    assertFalse(spillFile.exists());
+  }
+
+  @Test
+  public void shouldNotWaitForTheOtherShardsOfTheWorker() throws Exception {
+    dispatcher =
+        newDispatcher(
+            1,
+            100,
+            DispatchBackpressure.BLOCK,
+            batch -> {
+              if (batch.shardId().equals(OTHER_SHARD_ID)) {
+                started.countDown();
+                awaitRelease();
+              }
+              batch.records().forEach(r -> delivered.add(r.sequenceNumber()));
+            });
+
+    dispatcher.dispatch(batch(0));
+    dispatcher.dispatch(batch(OTHER_SHARD_ID, 100));
+    assertTrue(started.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+    assertTrue(dispatcher.awaitIdle(SHARD_ID, 100));
+    assertFalse(dispatcher.awaitIdle(OTHER_SHARD_ID, 100));
+    assertEquals(Collections.singletonList("0"), delivered);
+  }
+
+  @Test
+  public void shouldReportTheLagOfAShardOnceItsRecordsAreDelivered() throws Exception {
+    ShardLag lag = ShardLagRegistry.get().shard(STREAM, SHARD_ID);
+    dispatcher = newDispatcher(1, 100, DispatchBackpressure.BLOCK);
+    dispatcher.dispatch(batch(SHARD_ID, 0, 5000));
+    assertTrue(started.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+    dispatcher.dispatch(new RecordBatch(SHARD_ID, Collections.emptyList(), 0));
+    assertNull(lag.getLastSequenceNumber());
+    assertEquals(-1, lag.getMillisBehindLatest());
+    release.countDown();
+
+    assertTrue(dispatcher.awaitIdle(SHARD_ID, TIMEOUT_MS));
+    assertEquals("0", lag.getLastSequenceNumber());
+    assertTrue(lag.getMillisBehindLatest() >= 5000);
+
+    dispatcher.dispatch(new RecordBatch(SHARD_ID, Collections.emptyList(), 0));
+    assertEquals("0", lag.getLastSequenceNumber());
+    assertTrue(lag.getMillisBehindLatest() < 5000);
+  }
+
+  private RecordDispatcher newDispatcher(
+      int threads, int capacity, DispatchBackpressure backpressure) {
+    return newDispatcher(
+        threads,
+        capacity,
+        backpressure,
+        batch -> {
+          started.countDown();
+          awaitRelease();
+          batch.records().forEach(r -> delivered.add(r.sequenceNumber()));
+        });
+  }
+
+  private RecordDispatcher newDispatcher(
+      int threads,
+      int capacity,
+      DispatchBackpressure backpressure,
+      Consumer<RecordBatch> handler) {
+    RecordDispatcher recordDispatcher =
+        new RecordDispatcher(STREAM, threads, capacity, backpressure, tmp.getRoot(), handler);
+    recordDispatcher.start();
+    return recordDispatcher;
+  }
+
+  private void awaitRelease() {
+    try {
+      release.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static RecordBatch batch(int sequenceNumber) {
+    return batch(SHARD_ID, sequenceNumber);
+  }
+
+  private static RecordBatch batch(String shardId, int sequenceNumber) {
+    return batch(shardId, sequenceNumber, -1);
+  }
+
+  private static RecordBatch batch(String shardId, int sequenceNumber, long millisBehindLatest) {
+    return new RecordBatch(
+        shardId,
+        Collections.singletonList(
+            KinesisClientRecord.builder()
+                .sequenceNumber(String.valueOf(sequenceNumber))
+                .partitionKey("partitionKey")
+                .data(ByteBuffer.wrap("{}".getBytes(StandardCharsets.UTF_8)))
+                .build()),
+        millisBehindLatest);
+  }
+
+  private static List<String> sequenceNumbers(int from, int to) {
+    return IntStream.range(from, to).mapToObj(String::valueOf).collect(Collectors.toList());
+  }
+}
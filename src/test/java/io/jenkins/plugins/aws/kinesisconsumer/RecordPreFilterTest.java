@@ -0,0 +1,92 @@
+package io.jenkins.plugins.aws.kinesisconsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.jenkins.plugins.aws.kinesisconsumer.extensions.AWSKinesisRecord;
+import io.jenkins.plugins.aws.kinesisconsumer.metrics.MetricsRegistry;
+import org.junit.Test;
+
+public class RecordPreFilterTest {
+  private static final String PUSH = "{\"action\":\"push\",\"repository\":{\"name\":\"foo\"}}";
+  private static final String PING = "{\"action\":\"ping\"}";
+
+  @Test
+  public void shouldAcceptAllRecordsWithoutRules() {
+    RecordPreFilter filter = new RecordPreFilter(streamItem("filter-none"));
+
+    assertFalse(filter.hasRules());
+    assertTrue(filter.test(record("repo-foo", PING)));
+  }
+
+  @Test
+  public void shouldFilterOnJsonPath() {
+    KinesisStreamItem item = streamItem("filter-json-path");
+    item.setFilterJsonPath("$[?(@.action != 'ping')]");
+    RecordPreFilter filter = new RecordPreFilter(item);
+
+    assertTrue(filter.test(record("repo-foo", PUSH)));
+    assertFalse(filter.test(record("repo-foo", PING)));
+    assertEquals(1, filtered("filter-json-path", "json_path"));
+  }
+
+  @Test
+  public void shouldFilterOutRecordsWithAnInvalidPayload() {
+    KinesisStreamItem item = streamItem("filter-invalid-json");
+    item.setFilterJsonPath("$[?(@.action != 'ping')]");
+    RecordPreFilter filter = new RecordPreFilter(item);
+
+    assertFalse(filter.test(record("repo-foo", "{\"action\": ")));
+    assertTrue(filter.test(record("repo-foo", PUSH)));
+    assertEquals(1, filtered("filter-invalid-json", "json_path"));
+  }
+
+  @Test
+  public void shouldFilterOnPayloadPrefixAndRegex() {
+    KinesisStreamItem item = streamItem("filter-payload");
+    item.setFilterPayloadPrefix("{\"action\":");
+    item.setFilterPayloadRegex("\"name\":\"fo+\"");
+    RecordPreFilter filter = new RecordPreFilter(item);
+
+    assertTrue(filter.test(record("repo-foo", PUSH)));
+    assertFalse(filter.test(record("repo-foo", PING)));
+    assertFalse(filter.test(record("repo-foo", "[" + PUSH + "]")));
+    assertEquals(1, filtered("filter-payload", "payload_prefix"));
+    assertEquals(1, filtered("filter-payload", "payload_regex"));
+  }
+
+  @Test
+  public void shouldFilterOnPartitionKey() {
+    KinesisStreamItem item = streamItem("filter-partition-key");
+    item.setFilterPartitionKeyRegex("repo-.*");
+    RecordPreFilter filter = new RecordPreFilter(item);
+
+    assertTrue(filter.test(record("repo-foo", PING)));
+    assertFalse(filter.test(record("org-foo", PUSH)));
+    assertEquals(1, filtered("filter-partition-key", "partition_key"));
+  }
+
+  @Test
+  public void shouldIgnoreInvalidRules() {
+    KinesisStreamItem item = streamItem("filter-invalid");
+    item.setFilterPayloadRegex("(push");
+    item.setFilterJsonPath("$.action[");
+
+    assertFalse(new RecordPreFilter(item).hasRules());
+  }
+
+  private static long filtered(String streamName, String rule) {
+    return MetricsRegistry.get()
+        .counter("kinesis_records_filtered", "stream", streamName, "rule", rule)
+        .get();
+  }
+
+  private static KinesisStreamItem streamItem(String streamName) {
+    return new KinesisStreamItem(streamName, "TRIM_HORIZON", "$.repository.name", true);
+  }
+
+  private static AWSKinesisRecord record(String partitionKey, String payload) {
+    return new AWSKinesisRecord("shardId-000000000000", "1", 0, partitionKey, null, payload);
+  }
+}
@@ -0,0 +1,47 @@
+package io.jenkins.plugins.aws.kinesisconsumer.extensions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import org.junit.Test;
+
+public class AWSKinesisRecordTest {
+  private static final String PAYLOAD = "{\"project\":\"testProject\"}";
+
+  @Test
+  public void shouldDecodePayloadOnce() {
+    AWSKinesisRecord record = newRecord();
+
+    String payload = record.getJsonPayload();
+
+    assertEquals(PAYLOAD, payload);
+    assertSame(payload, record.getJsonPayload());
+  }
+
+  @Test
+  public void shouldExposeIndependentReadOnlyViewsOfTheData() {
+    AWSKinesisRecord record = newRecord();
+
+    ByteBuffer first = record.getData();
+    first.get(new byte[first.remaining()]);
+    ByteBuffer second = record.getData();
+
+    assertTrue(second.isReadOnly());
+    assertEquals(PAYLOAD.length(), second.remaining());
+    assertEquals(PAYLOAD, record.getJsonPayload());
+  }
+
+  private static AWSKinesisRecord newRecord() {
+    return new AWSKinesisRecord(
+        "shardId-000000000000",
+        "1",
+        0,
+        "key",
+        Instant.now(),
+        ByteBuffer.wrap(PAYLOAD.getBytes(StandardCharsets.UTF_8)));
+  }
+}
@@ -1,18 +1,27 @@
 package io.jenkins.plugins.aws.kinesisconsumer.extensions;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import hudson.Extension;
 import hudson.ExtensionList;
+import hudson.security.ACL;
 import io.jenkins.plugins.aws.kinesisconsumer.BaseLocalStack;
 import io.jenkins.plugins.aws.kinesisconsumer.utils.WaitUtil;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import jenkins.model.Jenkins;
 import org.junit.Test;
 import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.services.kinesis.model.PutRecordRequest;
 
 public class AWSKinesisStreamListenerTest extends BaseLocalStack {
+  private static final String SHARD_ID = "shardId-000000000000";
 
   @Extension
   public static class TestListener extends AWSKinesisStreamListener {
@@ -52,6 +61,45 @@ public class AWSKinesisStreamListenerTest extends BaseLocalStack {
         () -> testListener.getRecordReceivedCounter(STREAM_NAME) == 1, RECORD_CONSUMED_TIMEOUT);
   }
 
+  @Test
+  public void shouldDeliverEachRecordOfABatchToOnReceive() {
+    TestListener testListener =
+        AWSKinesisStreamListener.getAllRegisteredListeners().get(TestListener.class);
+
+    AWSKinesisStreamListener.fireOnReceiveBatch(
+        STREAM_NAME,
+        SHARD_ID,
+        Arrays.asList(
+            new AWSKinesisRecord(SHARD_ID, "1", 0, "key", Instant.now(), "{}"),
+            new AWSKinesisRecord(SHARD_ID, "2", 0, "key", Instant.now(), "{}")));
+
+    assertEquals(Integer.valueOf(2), testListener.getRecordReceivedCounter(STREAM_NAME));
+  }
+
+  @Test
+  public void shouldDeliverToListenersRegisteredAfterTheFirstBatch() {
+    AWSKinesisStreamListener.fireOnReceive(STREAM_NAME, "{}");
+    List<String> users = Collections.synchronizedList(new ArrayList<>());
+    AWSKinesisStreamListener lateListener =
+        new AWSKinesisStreamListener() {
+          @Override
+          public void onReceive(String streamName, String jsonPayload) {
+            users.add(Jenkins.getAuthentication2().getName());
+          }
+        };
+
+    ExtensionList.lookup(AWSKinesisStreamListener.class).add(lateListener);
+    AWSKinesisStreamListener.fireOnReceiveBatch(
+        STREAM_NAME,
+        SHARD_ID,
+        Arrays.asList(
+            new AWSKinesisRecord(SHARD_ID, "1", 0, "key", Instant.now(), "{}"),
+            new AWSKinesisRecord(SHARD_ID, "2", 0, "key", Instant.now(), "{}")));
+
+    assertTrue(AWSKinesisStreamListener.getListeners().contains(lateListener));
+    assertEquals(Arrays.asList(ACL.SYSTEM_USERNAME, ACL.SYSTEM_USERNAME), users);
+  }
+
   private void sendKinesisRecord() {
     PutRecordRequest putRecordRequest =
         PutRecordRequest.builder()
@@ -10,7 +10,10 @@ import static org.mockito.Mockito.when;
 import hudson.model.Result;
 import io.jenkins.plugins.aws.kinesisconsumer.GlobalKinesisConfiguration;
 import io.jenkins.plugins.aws.kinesisconsumer.KinesisStreamItem;
+import io.jenkins.plugins.aws.kinesisconsumer.extensions.AWSKinesisRecord;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Optional;
 import jenkins.branch.BranchSource;
@@ -80,6 +83,69 @@ public class AWSKinesisStreamListenerImplTest {
             .getProjectFromEvent(streamName, "{\"projectField\":\"" + projectName + "\"}"));
   }
 
+  @Test
+  public void shouldNotGetProjectFromEventIfJsonPathIsInvalid() {
+    String streamName = "testStream";
+    String projectName = "testProject";
+    setGlobalConfiguration(streamName, "$.projectField[", true);
+
+    assertEquals(
+        "Get expected project",
+        Optional.empty(),
+        new AWSKinesisStreamListenerImpl()
+            .getProjectFromEvent(streamName, "{\"projectField\":\"" + projectName + "\"}"));
+  }
+
+  @Test
+  public void shouldGetTheTextOfNumbersWhetherTheJsonPathIsStreamedOrNot() {
+    String streamName = "testStream";
+    String payload = "{\"commits\":[{\"id\":42}]}";
+    AWSKinesisStreamListenerImpl listener = new AWSKinesisStreamListenerImpl();
+
+    setGlobalConfiguration(streamName, "$.commits[0].id", true);
+    assertEquals(Optional.of("42"), listener.getProjectFromEvent(streamName, payload));
+
+    setGlobalConfiguration(streamName, "$.commits[-1].id", true);
+    assertEquals(Optional.of("42"), listener.getProjectFromEvent(streamName, payload));
+  }
+
+  @Test
+  public void shouldNotGetProjectFromEventIfJsonPathIsNotAScalar() {
+    String streamName = "testStream";
+    String payload = "{\"commits\":[{\"id\":\"1\"}],\"repository\":{\"name\":\"testProject\"}}";
+    AWSKinesisStreamListenerImpl listener = new AWSKinesisStreamListenerImpl();
+
+    setGlobalConfiguration(streamName, "$.repository", true);
+    assertEquals(Optional.empty(), listener.getProjectFromEvent(streamName, payload));
+
+    setGlobalConfiguration(streamName, "$.commits[-1]", true);
+    assertEquals(Optional.empty(), listener.getProjectFromEvent(streamName, payload));
+
+    setGlobalConfiguration(streamName, "$..name", true);
+    assertEquals(Optional.empty(), listener.getProjectFromEvent(streamName, payload));
+  }
+
+  @Test
+  public void shouldGetProjectFromRecordData() {
+    String streamName = "testStream";
+    setGlobalConfiguration(streamName, "$.repository.name", true);
+    String payload = "{\"commits\":[{\"id\":\"1\"}],\"repository\":{\"name\":\"testProject\"}}";
+
+    assertEquals(
+        "Get expected project",
+        Optional.of("testProject"),
+        new AWSKinesisStreamListenerImpl()
+            .getProjectFromRecord(
+                streamName,
+                new AWSKinesisRecord(
+                    "shardId-000000000000",
+                    "1",
+                    0,
+                    "partitionKey",
+                    null,
+                    ByteBuffer.wrap(payload.getBytes(StandardCharsets.UTF_8)))));
+  }
+
   @Test
   public void shouldTriggerSCMBuild() throws Exception {
     String streamName = "testStream";
@@ -0,0 +1,94 @@
+package io.jenkins.plugins.aws.kinesisconsumer.listeners;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableSet;
+import hudson.ExtensionList;
+import hudson.model.Items;
+import hudson.model.listeners.ItemListener;
+import io.jenkins.plugins.aws.kinesisconsumer.KinesisConsumerManager;
+import java.io.IOException;
+import java.util.Set;
+import jenkins.branch.BranchSource;
+import jenkins.plugins.git.GitSCMSource;
+import org.jenkinsci.plugins.workflow.multibranch.WorkflowMultiBranchProject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.For;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockFolder;
+
+@For(SCMSourceIndex.class)
+public class SCMSourceIndexTest {
+  @Rule public JenkinsRule j = new JenkinsRule();
+
+  @Test
+  public void shouldNormalizeRepositoryKey() {
+    assertEquals("repo", SCMSourceIndex.repositoryKey("git@github.com:org/repo.git"));
+    assertEquals("repo", SCMSourceIndex.repositoryKey("https://github.com/org/repo"));
+    assertEquals("repo", SCMSourceIndex.repositoryKey("org/repo"));
+    assertEquals("repo", SCMSourceIndex.repositoryKey("repo"));
+  }
+
+  @Test
+  public void shouldBuildTheIndexBeforeTheConsumersAreStarted() {
+    ExtensionList<ItemListener> listeners = ItemListener.all();
+
+    int index = listeners.indexOf(SCMSourceIndex.get());
+    int consumers = listeners.indexOf(listeners.get(KinesisConsumerManager.class));
+
+    assertTrue(index >= 0 && index < consumers);
+  }
+
+  @Test
+  public void shouldIndexProjectWhenSourcesAreAdded() throws Exception {
+    WorkflowMultiBranchProject mp = createProject("job", "org/repo");
+
+    assertEquals(
+        ImmutableSet.of(mp.getFullName()), SCMSourceIndex.get().getJobsForProject("org/repo"));
+  }
+
+  @Test
+  public void shouldRemoveProjectFromIndexWhenDeleted() throws Exception {
+    WorkflowMultiBranchProject mp = createProject("job", "org/repo");
+
+    mp.delete();
+
+    assertTrue(SCMSourceIndex.get().getJobsForProject("org/repo").isEmpty());
+  }
+
+  @Test
+  public void shouldReindexProjectWhenMoved() throws Exception {
+    WorkflowMultiBranchProject mp = createProject("job", "org/repo");
+    MockFolder folder = j.createFolder("folder");
+
+    Items.move(mp, folder);
+
+    assertEquals(ImmutableSet.of("folder/job"), SCMSourceIndex.get().getJobsForProject("repo"));
+  }
+
+  @Test
+  public void shouldNotExposeTheIndexToCallers() throws Exception {
+    WorkflowMultiBranchProject mp = createProject("job", "org/repo");
+    Set<String> jobs = SCMSourceIndex.get().getJobsForProject("org/repo");
+
+    assertThrows(UnsupportedOperationException.class, () -> jobs.add("other"));
+    mp.delete();
+
+    assertEquals(ImmutableSet.of("job"), jobs);
+  }
+
+  private WorkflowMultiBranchProject createProject(String jobName, String repository)
+      throws IOException {
+    WorkflowMultiBranchProject mp =
+        j.jenkins.createProject(WorkflowMultiBranchProject.class, jobName);
+    GitSCMSource scmSource = mock(GitSCMSource.class);
+    when(scmSource.getRemote()).thenReturn("git@github.com:" + repository + ".git");
+    mp.getSourcesList().add(new BranchSource(scmSource));
+    return mp;
+  }
+}
@@ -0,0 +1,65 @@
+package io.jenkins.plugins.aws.kinesisconsumer.listeners;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+public class SCMTriggerCoalescerTest {
+  private static final String KEY = "folder/job#source-id";
+
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+  private final SCMTriggerCoalescer coalescer = new SCMTriggerCoalescer(() -> executor);
+  private final AtomicInteger fired = new AtomicInteger();
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldFireEveryTriggerWhenQuietPeriodIsDisabled() {
+    for (int i = 0; i < 5; i++) {
+      assertTrue(coalescer.submit(KEY, 0, 0, fired::incrementAndGet));
+    }
+
+    assertEquals(5, fired.get());
+  }
+
+  @Test
+  public void shouldFireFirstTriggerImmediatelyAndCoalesceTheBurst() throws Exception {
+    CountDownLatch trailing = new CountDownLatch(1);
+
+    assertTrue(coalescer.submit(KEY, 200, 10000, fired::incrementAndGet));
+    for (int i = 0; i < 10; i++) {
+      assertFalse(
+          coalescer.submit(
+              KEY,
+              200,
+              10000,
+              () -> {
+                fired.incrementAndGet();
+                trailing.countDown();
+              }));
+    }
+    assertEquals(1, fired.get());
+
+    assertTrue(trailing.await(5, TimeUnit.SECONDS));
+    assertEquals(2, fired.get());
+  }
+
+  @Test
+  public void shouldNotCoalesceTriggersOfDifferentKeys() {
+    assertTrue(coalescer.submit(KEY, 60000, 60000, fired::incrementAndGet));
+    assertTrue(coalescer.submit("other#source-id", 60000, 60000, fired::incrementAndGet));
+
+    assertEquals(2, fired.get());
+  }
+}
@@ -0,0 +1,83 @@
+package io.jenkins.plugins.aws.kinesisconsumer.listeners;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class StreamingJsonFieldExtractorTest {
+  private static final String PAYLOAD =
+      "{\"action\":\"push\","
+          + "\"commits\":[{\"id\":\"c1\",\"files\":[\"a\",\"b\"]},{\"id\":\"c2\"}],"
+          + "\"repository\":{\"owner\":{\"login\":\"jenkinsci\"},\"name\":\"testProject\","
+          + "\"size\":42,\"private\":false,\"homepage\":null}}";
+
+  @Test
+  public void shouldExtractDottedField() throws Exception {
+    assertEquals("testProject", extract("$.repository.name"));
+    assertEquals("jenkinsci", extract("$.repository.owner.login"));
+  }
+
+  @Test
+  public void shouldExtractBracketedField() throws Exception {
+    assertEquals("testProject", extract("$['repository']['name']"));
+    assertEquals("testProject", extract("$[\"repository\"].name"));
+  }
+
+  @Test
+  public void shouldExtractArrayElement() throws Exception {
+    assertEquals("c2", extract("$.commits[1].id"));
+    assertEquals("b", extract("$.commits[0].files[1]"));
+  }
+
+  @Test
+  public void shouldExtractScalarValuesAsText() throws Exception {
+    assertEquals("42", extract("$.repository.size"));
+    assertEquals("false", extract("$.repository.private"));
+  }
+
+  @Test
+  public void shouldNotExtractMissingOrNonScalarValues() throws Exception {
+    assertNull(extract("$.repository.missing"));
+    assertNull(extract("$.commits[2].id"));
+    assertNull(extract("$.action.name"));
+    assertNull(extract("$.repository.homepage"));
+    assertNull(extract("$.repository"));
+  }
+
+  @Test
+  public void shouldExtractFromStringAndDirectBuffer() throws Exception {
+    StreamingJsonFieldExtractor extractor = compile("$.repository.name");
+    byte[] bytes = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes).flip();
+
+    assertEquals("testProject", extractor.extract(PAYLOAD));
+    assertEquals("testProject", extractor.extract(direct));
+    assertEquals(0, direct.position());
+  }
+
+  @Test
+  public void shouldNotCompileComplexExpressions() {
+    assertNull(StreamingJsonFieldExtractor.compile("$..name"));
+    assertNull(StreamingJsonFieldExtractor.compile("$.commits[*].id"));
+    assertNull(StreamingJsonFieldExtractor.compile("$.commits[-1].id"));
+    assertNull(StreamingJsonFieldExtractor.compile("$.commits[?(@.id == 'c1')]"));
+    assertNull(StreamingJsonFieldExtractor.compile("$.commits.length()"));
+    assertNull(StreamingJsonFieldExtractor.compile("$"));
+  }
+
+  private static String extract(String jsonPath) throws Exception {
+    return compile(jsonPath)
+        .extract(ByteBuffer.wrap(PAYLOAD.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static StreamingJsonFieldExtractor compile(String jsonPath) {
+    StreamingJsonFieldExtractor extractor = StreamingJsonFieldExtractor.compile(jsonPath);
+    assertNotNull(extractor);
+    return extractor;
+  }
+}
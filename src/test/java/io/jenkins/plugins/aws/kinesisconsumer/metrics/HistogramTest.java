@@ -0,0 +1,31 @@
+package io.jenkins.plugins.aws.kinesisconsumer.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+public class HistogramTest {
+
+  @Test
+  public void shouldApproximatePercentiles() {
+    Histogram histogram = new Histogram();
+    IntStream.rangeClosed(1, 100).forEach(histogram::record);
+
+    assertEquals(100, histogram.getCount());
+    assertEquals(50.5, histogram.getMean(), 0.001);
+    assertEquals(1, histogram.getMin(), 0);
+    assertEquals(100, histogram.getMax(), 0);
+    assertEquals(64, histogram.getPercentile(0.5), 0);
+    assertEquals(100, histogram.getPercentile(0.99), 0);
+  }
+
+  @Test
+  public void shouldBeEmptyWhenNothingRecorded() {
+    Histogram histogram = new Histogram();
+
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMax(), 0);
+    assertEquals(0, histogram.getPercentile(0.99), 0);
+  }
+}
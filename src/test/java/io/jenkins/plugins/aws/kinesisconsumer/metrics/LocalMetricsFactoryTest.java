@@ -0,0 +1,45 @@
+package io.jenkins.plugins.aws.kinesisconsumer.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+import software.amazon.kinesis.metrics.MetricsLevel;
+import software.amazon.kinesis.metrics.MetricsScope;
+
+public class LocalMetricsFactoryTest {
+  private final MetricsRegistry registry = new MetricsRegistry();
+
+  @Test
+  public void shouldRecordMetricsWithEnabledDimensions() {
+    LocalMetricsFactory factory =
+        new LocalMetricsFactory(registry, MetricsLevel.SUMMARY, ImmutableSet.of("Operation"));
+
+    MetricsScope scope = factory.createMetrics();
+    scope.addDimension("Operation", "ProcessTask");
+    scope.addDimension("ShardId", "shardId-000000000000");
+    scope.addData("RecordsProcessed", 3, StandardUnit.COUNT, MetricsLevel.SUMMARY);
+    scope.end();
+
+    Histogram histogram =
+        registry
+            .getHistograms()
+            .get(new MetricKey("kcl_RecordsProcessed", "Operation", "ProcessTask"));
+    assertEquals(1, histogram.getCount());
+    assertEquals(3, histogram.getSum(), 0);
+  }
+
+  @Test
+  public void shouldDiscardMetricsBelowTheConfiguredLevel() {
+    LocalMetricsFactory factory =
+        new LocalMetricsFactory(registry, MetricsLevel.SUMMARY, ImmutableSet.of("ALL"));
+
+    MetricsScope scope = factory.createMetrics();
+    scope.addData("DataBytesProcessed", 100, StandardUnit.BYTES);
+    scope.end();
+
+    assertTrue(registry.getHistograms().isEmpty());
+  }
+}
@@ -0,0 +1,59 @@
+package io.jenkins.plugins.aws.kinesisconsumer.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+public class MetricsFormatTest {
+  private final MetricsRegistry registry = new MetricsRegistry();
+
+  @Test
+  public void shouldFormatPrometheusSamples() {
+    registry.counter("kinesis_scm_scans_triggered", "stream", "s1").inc(3);
+    registry.gauge("kinesis_millis_behind_latest", "stream", "s1", "shard", "sh1").set(250);
+    registry.histogram("kinesis_listener_batch_ms", "stream", "s1").record(4);
+
+    String prometheus = MetricsFormat.prometheus(registry);
+
+    assertTrue(prometheus.contains("# TYPE kinesis_scm_scans_triggered counter\n"));
+    assertTrue(prometheus.contains("kinesis_scm_scans_triggered{stream=\"s1\"} 3\n"));
+    assertTrue(
+        prometheus.contains(
+            "kinesis_millis_behind_latest{shard=\"sh1\",stream=\"s1\"} 250\n"));
+    assertTrue(prometheus.contains("# TYPE kinesis_listener_batch_ms summary\n"));
+    assertTrue(
+        prometheus.contains("kinesis_listener_batch_ms{quantile=\"0.99\",stream=\"s1\"} 4\n"));
+    assertTrue(prometheus.contains("kinesis_listener_batch_ms_count{stream=\"s1\"} 1\n"));
+  }
+
+  @Test
+  public void shouldFormatJson() {
+    registry.meter("kinesis_records", "stream", "s1").mark(10);
+
+    JSONObject json = MetricsFormat.json(registry);
+
+    JSONObject meter = json.getJSONArray("meters").getJSONObject(0);
+    assertEquals("kinesis_records", meter.getString("name"));
+    assertEquals("s1", meter.getJSONObject("labels").getString("stream"));
+    assertEquals(10, meter.getLong("count"));
+  }
+
+  @Test
+  public void shouldFormatShardLagAsJson() {
+    ShardLagRegistry lagRegistry = new ShardLagRegistry();
+    ShardLag lag = lagRegistry.shard("s1", "sh1");
+    lag.update(1000, 250, "42", null);
+    lag.setRecordsSinceCheckpoint(7);
+
+    JSONObject json = MetricsFormat.json(lagRegistry);
+
+    assertEquals(250, json.getJSONArray("streams").getJSONObject(0).getLong("millisBehindLatest"));
+    JSONObject shard = json.getJSONArray("shards").getJSONObject(0);
+    assertEquals("sh1", shard.getString("shard"));
+    assertEquals("42", shard.getString("lastSequenceNumber"));
+    assertEquals(7, shard.getLong("recordsSinceCheckpoint"));
+    assertEquals(1, shard.getJSONArray("history").size());
+  }
+}
@@ -0,0 +1,27 @@
+package io.jenkins.plugins.aws.kinesisconsumer.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+  private final MetricsRegistry registry = new MetricsRegistry();
+
+  @Test
+  public void shouldRemoveTheMetricsOfAShard() {
+    registry.meter("kinesis_records", "stream", "s1", "shard", "sh1").mark(1);
+    registry.gauge("kinesis_millis_behind_latest", "stream", "s1", "shard", "sh1").set(250);
+    registry.gauge("kinesis_millis_behind_latest", "stream", "s1", "shard", "sh2").set(100);
+    registry.counter("kinesis_listener_errors", "stream", "s1", "listener", "l1").inc();
+
+    registry.remove("stream", "s1", "shard", "sh1");
+
+    assertEquals(0, registry.getMeters().size());
+    assertEquals(
+        ImmutableSet.of(
+            new MetricKey("kinesis_millis_behind_latest", "stream", "s1", "shard", "sh2")),
+        registry.getGauges().keySet());
+    assertEquals(1, registry.getCounters().size());
+  }
+}
@@ -0,0 +1,151 @@
+package io.jenkins.plugins.aws.kinesisconsumer.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class ShardLagTest {
+  private static final long MINUTE_MS = ShardLag.HISTORY_INTERVAL_MS;
+
+  private final ShardLagRegistry registry = new ShardLagRegistry();
+
+  @Test
+  public void shouldKeepTheLastSequenceNumberOfEmptyBatches() {
+    ShardLag lag = registry.shard("s1", "sh1");
+    Instant arrival = Instant.ofEpochMilli(1000);
+
+    lag.update(1000, 500, "42", arrival);
+    lag.setRecordsSinceCheckpoint(3);
+    lag.update(2000, 0, null, null);
+    lag.setRecordsSinceCheckpoint(0);
+
+    assertEquals(0, lag.getMillisBehindLatest());
+    assertEquals("42", lag.getLastSequenceNumber());
+    assertEquals(arrival, lag.getLastArrival());
+    assertEquals(0, lag.getRecordsSinceCheckpoint());
+    assertEquals(2000, lag.getUpdatedAtMs());
+  }
+
+  @Test
+  public void shouldKeepTheMaximumLagOfEachMinute() {
+    ShardLag lag = registry.shard("s1", "sh1");
+
+    lag.update(MINUTE_MS, 100, "1", null);
+    lag.update(MINUTE_MS + 10, 300, "2", null);
+    lag.update(2 * MINUTE_MS, 50, "3", null);
+
+    List<Long> history =
+        lag.getHistory().stream()
+            .map(ShardLag.Sample::getMillisBehindLatest)
+            .collect(Collectors.toList());
+    assertEquals(Arrays.asList(300L, 50L), history);
+    assertEquals(MINUTE_MS, lag.getHistory().get(0).getTimestampMs());
+  }
+
+  @Test
+  public void shouldBoundTheHistory() {
+    ShardLag lag = registry.shard("s1", "sh1");
+
+    for (int i = 1; i <= ShardLag.HISTORY_SIZE + 10; i++) {
+      lag.update(i * MINUTE_MS, i, String.valueOf(i), null);
+    }
+
+    List<ShardLag.Sample> history = lag.getHistory();
+    assertEquals(ShardLag.HISTORY_SIZE + 1, history.size());
+    assertEquals(
+        ShardLag.HISTORY_SIZE + 10, history.get(history.size() - 1).getMillisBehindLatest());
+  }
+
+  @Test
+  public void shouldReportLaggingShardsAndStreams() {
+    registry.shard("s1", "sh1").update(1000, 100, "1", null);
+    registry.shard("s1", "sh2").update(1000, 90000, "1", null);
+    registry.shard("s2", "sh1").update(1000, 10, "1", null);
+
+    List<ShardLag> lagging = registry.getLagging(60000, 2000);
+
+    assertEquals(1, lagging.size());
+    assertEquals("sh2", lagging.get(0).getShardId());
+    assertEquals(Long.valueOf(90000), registry.getStreams().get("s1"));
+    assertEquals(Long.valueOf(10), registry.getStreams().get("s2"));
+  }
+
+  @Test
+  public void shouldReportShardsWithoutDeliveriesForLongerThanTheThresholdAsLagging() {
+    ShardLag lag = registry.shard("s1", "sh1");
+    lag.update(1000, 100, "1", null);
+
+    assertFalse(lag.isLagging(60000, 61000));
+    assertTrue(lag.isLagging(60000, 61001));
+    assertEquals(1, registry.getLagging(60000, 61001).size());
+  }
+
+  @Test
+  public void shouldNotReportNewShardsAsLagging() {
+    ShardLag lag = registry.shard("s1", "sh1");
+
+    assertTrue(registry.getLagging(60000).isEmpty());
+    assertEquals(-1, lag.getMillisBehindLatest());
+  }
+
+  @Test
+  public void shouldNotCreateTheLagOfShardsNotConsumed() {
+    assertFalse(registry.find("s1", "sh1").isPresent());
+
+    ShardLag lag = registry.shard("s1", "sh1");
+
+    assertSame(lag, registry.find("s1", "sh1").get());
+    assertTrue(registry.getShards().contains(lag));
+  }
+
+  @Test
+  public void shouldForgetRemovedShards() {
+    registry.shard("s1", "sh1").update(1000, 90000, "1", null);
+
+    registry.remove("s1", "sh1");
+
+    assertTrue(registry.getShards().isEmpty());
+    assertNull(registry.getStreams().get("s1"));
+  }
+
+  @Test
+  public void shouldNotLoseShardsAddedWhileTheLastShardOfTheStreamIsRemoved() {
+    for (int i = 0; i < 1000; i++) {
+      String released = "released-" + i;
+      String acquired = "acquired-" + i;
+      registry.shard("s1", released);
+      CyclicBarrier start = new CyclicBarrier(2);
+      CompletableFuture<Void> remove =
+          CompletableFuture.runAsync(
+              () -> {
+                await(start);
+                registry.remove("s1", released);
+              });
+      await(start);
+      ShardLag lag = registry.shard("s1", acquired);
+      remove.join();
+
+      assertSame(lag, registry.shard("s1", acquired));
+      assertEquals(1, registry.getShards().size());
+      registry.remove("s1", acquired);
+    }
+  }
+
+  private static void await(CyclicBarrier barrier) {
+    try {
+      barrier.await();
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}